@@ -0,0 +1,72 @@
+package io.github.rocsg.fijilutmaker.benchmarks;
+
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import io.github.rocsg.fijilutmaker.render.LUTApplier;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remapping an 8-bit image to its normal, deuteranope and tritanope renderings,
+ * as TestImagePanel.applyLut does on each colormap change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplyLUTBenchmark {
+
+    @Param({"256", "1024", "2048", "4096"})
+    public int side;
+
+    private BufferedImage src;
+    private PackedLUT lut;
+    private PackedLUT otherLut;
+    private LUTApplier.PixelIndex index;
+    private final BufferedImage[] dst = new BufferedImage[LUTApplier.VIEWS];
+    private int[] shownTable;
+    private boolean flip;
+
+    @Setup
+    public void setup() {
+        src = Fixtures.grayImage(side);
+        Colormap cm = new Colormap();
+        cm.setPoints(Fixtures.points(8));
+        lut = cm.generatePackedLUT();
+        // same LUT with one narrow band recolored: the typical incremental update
+        int[] p = lut.toPackedArray();
+        for (int i = 120; i < 136; i++) p[i] = 0x00FF00;
+        otherLut = new PackedLUT(p);
+        index = new LUTApplier.PixelIndex(src);
+        LUTApplier applier = new LUTApplier(lut);
+        applier.apply(src, dst);
+        shownTable = applier.getTable(LUTApplier.NORMAL);
+    }
+
+    /** Full remap into new images. */
+    @Benchmark
+    public BufferedImage[] applyNew() {
+        return new LUTApplier(lut).apply(src);
+    }
+
+    /** Full remap into reused images. */
+    @Benchmark
+    public BufferedImage[] applyReuse() {
+        new LUTApplier(lut).apply(src, dst);
+        return dst;
+    }
+
+    /** Incremental update after a local LUT edit. */
+    @Benchmark
+    public BufferedImage[] updateLocalEdit() {
+        flip = !flip;
+        LUTApplier applier = new LUTApplier(flip ? otherLut : lut);
+        applier.update(src, index, shownTable, dst, () -> false);
+        shownTable = applier.getTable(LUTApplier.NORMAL);
+        return dst;
+    }
+}
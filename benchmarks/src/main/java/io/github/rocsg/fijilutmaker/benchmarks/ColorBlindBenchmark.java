@@ -0,0 +1,77 @@
+package io.github.rocsg.fijilutmaker.benchmarks;
+
+import io.github.rocsg.fijilutmaker.color.ColorBlindSimulator;
+import io.github.rocsg.fijilutmaker.color.DaltonizeUtils;
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.ColormapValidator;
+import io.github.rocsg.fijilutmaker.model.ConfusionDetector;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Color vision deficiency simulation over a whole LUT, and confusable pair detection.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorBlindBenchmark {
+
+    @Param({"256", "4096", "65536"})
+    public int lutSize;
+
+    private int[][] lut;
+    private int[] packed;
+    private int[] out;
+    private PackedLUT packedLut;
+
+    @Setup
+    public void setup() {
+        Colormap cm = new Colormap();
+        cm.setPoints(Fixtures.points(8));
+        cm.setLutSize(lutSize);
+        PackedLUT p = cm.generatePackedLUT();
+        lut = p.toRGBArray();
+        packed = p.toPackedArray();
+        packedLut = p;
+        out = new int[lutSize];
+    }
+
+    /** int[3] per entry, as the preview panel originally did. */
+    @Benchmark
+    public int[][] deuteranopeArrays() {
+        int[][] res = new int[lut.length][];
+        for (int i = 0; i < lut.length; i++) res[i] = DaltonizeUtils.rgbDeuteranope(lut[i]);
+        return res;
+    }
+
+    /** One packed value at a time, without allocation. */
+    @Benchmark
+    public int[] deuteranopePacked() {
+        for (int i = 0; i < packed.length; i++) out[i] = ColorBlindSimulator.DEUTERANOPIA.simulate(packed[i]);
+        return out;
+    }
+
+    @Benchmark
+    public int[] tritanopePacked() {
+        ColorBlindSimulator.TRITANOPIA.simulate(packed, out, packed.length);
+        return out;
+    }
+
+    /** Machado matrices in linear RGB, one pass over the packed LUT. */
+    @Benchmark
+    public int[] deuteranopeSimulator() {
+        ColorBlindSimulator.DEUTERANOPIA.simulate(packed, out, packed.length);
+        return out;
+    }
+
+    @Benchmark
+    public List<ConfusionDetector.Pair> confusablePairs() {
+        return ColormapValidator.confusablePairs(packedLut, 10);
+    }
+}
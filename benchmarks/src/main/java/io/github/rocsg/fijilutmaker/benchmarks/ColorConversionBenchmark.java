@@ -0,0 +1,61 @@
+package io.github.rocsg.fijilutmaker.benchmarks;
+
+import io.github.rocsg.fijilutmaker.color.ColorUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RGB <-> Lab throughput, scalar and batch. Batch results are per call on COLORS colors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorConversionBenchmark {
+
+    static final int COLORS = 65536;
+
+    private int[] packed;
+    private float[] lab;
+    private int[] packedOut;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        packed = Fixtures.packedColors(COLORS);
+        lab = new float[COLORS * 3];
+        packedOut = new int[COLORS];
+        ColorUtils.rgbToLab(packed, lab, COLORS);
+    }
+
+    @Benchmark
+    public double[] rgbToLabScalar() {
+        int v = packed[cursor = (cursor + 1) & (COLORS - 1)];
+        return ColorUtils.rgbToLab((v >> 16) & 0xFF, (v >> 8) & 0xFF, v & 0xFF);
+    }
+
+    @Benchmark
+    public int[] labToRgbScalar() {
+        int o = (cursor = (cursor + 1) & (COLORS - 1)) * 3;
+        return ColorUtils.labToRgb(lab[o], lab[o + 1], lab[o + 2]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public float[] rgbToLabBatch() {
+        ColorUtils.rgbToLab(packed, lab, COLORS);
+        return lab;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public int[] labToRgbBatch() {
+        ColorUtils.labToRgb(lab, packedOut, COLORS);
+        return packedOut;
+    }
+}
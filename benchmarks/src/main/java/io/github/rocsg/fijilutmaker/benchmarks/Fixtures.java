@@ -0,0 +1,45 @@
+package io.github.rocsg.fijilutmaker.benchmarks;
+
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic inputs shared by the benchmarks (fixed seeds, so runs are comparable).
+ */
+final class Fixtures {
+
+    private Fixtures() {}
+
+    /** n control points evenly spaced on [0,1] with random colors. */
+    static List<ColorPoint> points(int n) {
+        Random rnd = new Random(42);
+        List<ColorPoint> pts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            pts.add(new ColorPoint((double) i / (n - 1), new int[]{rnd.nextInt(256), rnd.nextInt(256), rnd.nextInt(256)}));
+        return pts;
+    }
+
+    /** n random packed 0xRRGGBB colors. */
+    static int[] packedColors(int n) {
+        Random rnd = new Random(43);
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++) out[i] = rnd.nextInt(1 << 24);
+        return out;
+    }
+
+    /** side x side 8-bit gray image with a smooth gradient plus noise (all 256 values present). */
+    static BufferedImage grayImage(int side) {
+        BufferedImage img = new BufferedImage(side, side, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] data = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+        Random rnd = new Random(44);
+        for (int y = 0, o = 0; y < side; y++)
+            for (int x = 0; x < side; x++, o++)
+                data[o] = (byte) Math.min(255, (x + y) * 255 / (2 * side - 2) + rnd.nextInt(8));
+        return img;
+    }
+}
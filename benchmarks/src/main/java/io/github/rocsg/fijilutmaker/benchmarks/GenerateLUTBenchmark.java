@@ -0,0 +1,73 @@
+package io.github.rocsg.fijilutmaker.benchmarks;
+
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LUT generation for every interpolation mode, LUT size and number of control points.
+ * The cold benchmarks build a new Colormap per call, so nothing is memoized between invocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerateLUTBenchmark {
+
+    @Param({"LINEAR_RGB", "SPLINE_RGB", "LINEAR_LAB", "SPLINE_LAB", "LINEAR_LCH", "SPLINE_LCH"})
+    public InterpolationMode mode;
+
+    @Param({"256", "4096", "65536"})
+    public int lutSize;
+
+    @Param({"2", "8", "64"})
+    public int points;
+
+    private List<ColorPoint> pts;
+    private Colormap edited;
+    private ColorPoint moving;
+    private boolean flip;
+
+    @Setup
+    public void setup() {
+        pts = Fixtures.points(points);
+        edited = newColormap();
+        edited.generatePackedLUT();
+        moving = edited.getPoints().get(points / 2);
+    }
+
+    private Colormap newColormap() {
+        Colormap cm = new Colormap();
+        cm.setPoints(pts);
+        cm.setInterpolationMode(mode);
+        cm.setLutSize(lutSize);
+        return cm;
+    }
+
+    /** Legacy int[lutSize][3] API, from scratch. */
+    @Benchmark
+    public int[][] generateLUT() {
+        return newColormap().generateLUT();
+    }
+
+    /** Packed LUT, from scratch. */
+    @Benchmark
+    public PackedLUT generatePackedLUT() {
+        return newColormap().generatePackedLUT();
+    }
+
+    /** One control point recolored between calls, as when dragging a handle in the editor. */
+    @Benchmark
+    public PackedLUT editOnePoint() {
+        flip = !flip;
+        moving.setRgb(flip ? new int[]{10, 200, 30} : new int[]{240, 20, 120});
+        return edited.generatePackedLUT();
+    }
+}
@@ -0,0 +1,188 @@
+package io.github.rocsg.fijilutmaker.cli;
+
+import io.github.rocsg.fijilutmaker.io.LUTExporter;
+import io.github.rocsg.fijilutmaker.io.LUTExporter.Format;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless command line entry point: generates and exports every colormap of a manifest
+ * (or of a directory of *.cmap manifests) on a thread pool. See {@link ColormapDefinition} for the format.
+ * <pre>java -cp fijilutmaker.jar io.github.rocsg.fijilutmaker.cli.BatchLUTGenerator -o out -f lut,csv,png defs.txt</pre>
+ * Never opens a window: java.awt.headless is set before anything else.
+ */
+public class BatchLUTGenerator {
+
+    private Path outDir = Paths.get(".");
+    private Set<Format> formats = EnumSet.of(Format.LUT);
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int pngHeight = 32;
+    private Path input;
+    private boolean help;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        BatchLUTGenerator gen = new BatchLUTGenerator();
+        try {
+            gen.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            usage(System.err);
+            System.exit(2);
+        }
+        if (gen.help) {
+            usage(System.out);
+            return;
+        }
+        try {
+            System.exit(gen.run(System.out) ? 0 : 1);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    static void usage(PrintStream out) {
+        out.println("Usage: BatchLUTGenerator [-o outDir] [-f lut,csv,png] [-t threads] [--png-height N] <manifest | directory>");
+        out.println("  Manifest lines: name;MODE;size;pos #RRGGBB;pos #RRGGBB;...  (directory: every *.cmap file)");
+    }
+
+    void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "-o": outDir = Paths.get(value(args, ++i, a)); break;
+                case "-t": threads = positiveInt(value(args, ++i, a), a); break;
+                case "--png-height": pngHeight = positiveInt(value(args, ++i, a), a); break;
+                case "-f":
+                    formats = EnumSet.noneOf(Format.class);
+                    for (String f : value(args, ++i, a).split(",")) {
+                        try {
+                            formats.add(Format.valueOf(f.trim().toUpperCase(Locale.ROOT)));
+                        } catch (IllegalArgumentException e) {
+                            throw new IllegalArgumentException("unknown format " + f);
+                        }
+                    }
+                    break;
+                case "-h": case "--help": help = true; return;
+                default:
+                    if (a.startsWith("-") || input != null) throw new IllegalArgumentException("unexpected argument " + a);
+                    input = Paths.get(a);
+            }
+        }
+        if (input == null) throw new IllegalArgumentException("missing manifest or directory");
+    }
+
+    /**
+     * Generate and export everything; returns false if at least one colormap failed.
+     */
+    boolean run(PrintStream out) throws IOException {
+        long start = System.nanoTime();
+        List<ColormapDefinition> defs = readDefinitions(input);
+        Set<String> names = new HashSet<>();
+        for (ColormapDefinition d : defs)
+            if (!names.add(d.getName())) throw new IllegalArgumentException(d.getSource() + ": duplicate name " + d.getName());
+        Files.createDirectories(outDir);
+
+        int nThreads = Math.min(threads, Math.max(1, defs.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+        List<Future<Result>> futures = new ArrayList<>(defs.size());
+        for (ColormapDefinition d : defs) futures.add(pool.submit(() -> process(d)));
+        pool.shutdown();
+
+        int failed = 0;
+        long entries = 0, genNanos = 0, writeNanos = 0;
+        for (Future<Result> f : futures) {
+            Result r;
+            try {
+                r = f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pool.shutdownNow();
+                return false;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause()); // process() reports its own failures
+            }
+            if (r.error != null) {
+                failed++;
+                out.printf(Locale.ROOT, "%-24s FAILED %s%n", r.def.getName(), r.error);
+                continue;
+            }
+            entries += r.def.getLutSize();
+            genNanos += r.genNanos;
+            writeNanos += r.writeNanos;
+            out.printf(Locale.ROOT, "%-24s %-10s %6d entries  generate %8.3f ms  write %8.3f ms%n",
+                    r.def.getName(), r.def.getMode(), r.def.getLutSize(), r.genNanos / 1e6, r.writeNanos / 1e6);
+        }
+        double wall = (System.nanoTime() - start) / 1e9;
+        int ok = defs.size() - failed;
+        out.printf(Locale.ROOT, "%d colormaps (%d failed) in %.3f s on %d threads: %.1f colormaps/s, %.0f entries/s"
+                        + " (generate %.1f ms, write %.1f ms, summed over threads)%n",
+                ok, failed, wall, nThreads, ok / wall, entries / wall, genNanos / 1e6, writeNanos / 1e6);
+        return failed == 0;
+    }
+
+    static List<ColormapDefinition> readDefinitions(Path input) throws IOException {
+        if (!Files.isDirectory(input)) return ColormapDefinition.readAll(input);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(input, "*.cmap")) {
+            for (Path p : ds) files.add(p);
+        }
+        files.sort(null);
+        List<ColormapDefinition> defs = new ArrayList<>();
+        for (Path p : files) defs.addAll(ColormapDefinition.readAll(p));
+        return defs;
+    }
+
+    private Result process(ColormapDefinition def) {
+        Result r = new Result(def);
+        try {
+            long t0 = System.nanoTime();
+            PackedLUT lut = def.toColormap().generatePackedLUT();
+            long t1 = System.nanoTime();
+            LUTExporter.export(lut, outDir, def.getName(), formats, pngHeight);
+            r.genNanos = t1 - t0;
+            r.writeNanos = System.nanoTime() - t1;
+        } catch (IOException | RuntimeException e) {
+            r.error = def.getSource() + ": " + e.getMessage();
+        }
+        return r;
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException("missing value for " + option);
+        return args[i];
+    }
+
+    private static int positiveInt(String s, String option) {
+        try {
+            int v = Integer.parseInt(s);
+            if (v > 0) return v;
+        } catch (NumberFormatException e) { /* reported below */ }
+        throw new IllegalArgumentException(option + " expects a positive integer");
+    }
+
+    private static final class Result {
+        final ColormapDefinition def;
+        long genNanos, writeNanos;
+        String error;
+
+        Result(ColormapDefinition def) { this.def = def; }
+    }
+}
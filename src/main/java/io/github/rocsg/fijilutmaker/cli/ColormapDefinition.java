@@ -0,0 +1,111 @@
+package io.github.rocsg.fijilutmaker.cli;
+
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One colormap of a batch manifest. A definition is a single line:
+ * <pre>name;MODE;size;position #RRGGBB;position #RRGGBB;...</pre>
+ * for example {@code fire;LINEAR_LAB;256;0 #000000;0.5 #FF4000;1 #FFFFC0}.
+ * Blank lines and lines starting with '#' are ignored.
+ */
+public final class ColormapDefinition {
+
+    private final String name;
+    private final InterpolationMode mode;
+    private final int lutSize;
+    private final List<ColorPoint> points;
+    private final String source; // file:line, for error messages
+
+    private ColormapDefinition(String name, InterpolationMode mode, int lutSize, List<ColorPoint> points, String source) {
+        this.name = name;
+        this.mode = mode;
+        this.lutSize = lutSize;
+        this.points = points;
+        this.source = source;
+    }
+
+    /**
+     * Parse one definition line. Throws IllegalArgumentException with the source location on malformed input.
+     */
+    public static ColormapDefinition parse(String line, String source) {
+        String[] f = line.trim().split("\\s*;\\s*");
+        if (f.length < 5) throw new IllegalArgumentException(source + ": expected name;MODE;size;and at least 2 points");
+        String name = f[0];
+        if (name.isEmpty() || !name.matches("[\\w.+-]+"))
+            throw new IllegalArgumentException(source + ": invalid name '" + name + "' (letters, digits, . _ + - only)");
+        InterpolationMode mode;
+        try {
+            mode = InterpolationMode.valueOf(f[1].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(source + ": unknown interpolation mode " + f[1]);
+        }
+        int size;
+        try {
+            size = Integer.parseInt(f[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(source + ": invalid LUT size " + f[2]);
+        }
+        if (size < 2) throw new IllegalArgumentException(source + ": LUT size must be at least 2");
+        List<ColorPoint> pts = new ArrayList<>(f.length - 3);
+        for (int i = 3; i < f.length; i++) pts.add(parsePoint(f[i], source));
+        return new ColormapDefinition(name, mode, size, pts, source);
+    }
+
+    /**
+     * All definitions of a manifest file.
+     */
+    public static List<ColormapDefinition> readAll(Path file) throws IOException {
+        List<ColormapDefinition> defs = new ArrayList<>();
+        try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            for (int n = 1; (line = r.readLine()) != null; n++) {
+                String t = line.trim();
+                if (t.isEmpty() || t.startsWith("#")) continue;
+                defs.add(parse(t, file.getFileName() + ":" + n));
+            }
+        }
+        return defs;
+    }
+
+    private static ColorPoint parsePoint(String field, String source) {
+        String[] p = field.split("\\s+");
+        if (p.length != 2 || !p[1].matches("#[0-9a-fA-F]{6}"))
+            throw new IllegalArgumentException(source + ": invalid point '" + field + "' (expected: position #RRGGBB)");
+        double pos;
+        try {
+            pos = Double.parseDouble(p[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(source + ": invalid position " + p[0]);
+        }
+        if (!(pos >= 0 && pos <= 1)) throw new IllegalArgumentException(source + ": position out of [0,1]: " + p[0]);
+        int rgb = Integer.parseInt(p[1].substring(1), 16);
+        return new ColorPoint(pos, new int[] {(rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF});
+    }
+
+    public String getName() { return name; }
+    public InterpolationMode getMode() { return mode; }
+    public int getLutSize() { return lutSize; }
+    public String getSource() { return source; }
+
+    /** A new Colormap for this definition. */
+    public Colormap toColormap() {
+        Colormap cm = new Colormap();
+        List<ColorPoint> copy = new ArrayList<>(points.size());
+        for (ColorPoint p : points) copy.add(new ColorPoint(p.getPosition(), p.getRgb()));
+        cm.setPoints(copy);
+        cm.setInterpolationMode(mode);
+        cm.setLutSize(lutSize);
+        return cm;
+    }
+}
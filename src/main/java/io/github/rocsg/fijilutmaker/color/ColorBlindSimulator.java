@@ -1,42 +1,154 @@
 package io.github.rocsg.fijilutmaker.color;
 
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+
+import java.util.Locale;
+
 /**
  * Simulate color vision deficiency (color blindness) on RGB values.
- * Uses standard 3x3 matrices for Deuteranope, Tritanope, etc.
+ * Uses the Machado, Oliveira and Fernandes (2009) 3x3 matrices, applied in linear RGB
+ * (sRGB decoded through the ColorUtils table, re-encoded with ColorUtils.linearToSrgb).
+ * <p>
+ * A simulator is an immutable precomputed kernel (one deficiency, one severity). The published matrices
+ * are used at full severity; lower severities blend the full-severity matrix linearly with the identity,
+ * an approximation of Machado's per-severity matrices (exact at 0 and 1).
+ * LUTs are simulated in one pass over their packed values ({@link #simulate(PackedLUT)}), so images are
+ * simulated through a per-LUT table rather than per pixel (see LUTApplier).
  */
-public class ColorBlindSimulator {
+public final class ColorBlindSimulator {
+
+    /** Types of dichromacy / anomalous trichromacy. */
+    public enum Deficiency {
+        PROTAN(new double[] {
+            0.152286, 1.052583, -0.204868,
+            0.114503, 0.786281, 0.099216,
+           -0.003882, -0.048116, 1.051998}),
+        DEUTAN(new double[] {
+            0.367322, 0.860646, -0.227968,
+            0.280085, 0.672501, 0.047413,
+           -0.011820, 0.042940, 0.968881}),
+        TRITAN(new double[] {
+            1.255528, -0.076749, -0.178779,
+           -0.078411, 0.930809, 0.147602,
+            0.004733, 0.691367, 0.303900});
+
+        private final double[] fullSeverity; // row-major, linear RGB
+
+        Deficiency(double[] m) { this.fullSeverity = m; }
+    }
+
+    public static final ColorBlindSimulator PROTANOPIA = new ColorBlindSimulator(Deficiency.PROTAN, 1.0);
+    public static final ColorBlindSimulator DEUTERANOPIA = new ColorBlindSimulator(Deficiency.DEUTAN, 1.0);
+    public static final ColorBlindSimulator TRITANOPIA = new ColorBlindSimulator(Deficiency.TRITAN, 1.0);
+
+    private final Deficiency deficiency;
+    private final double severity;
+    private final double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+
+    private ColorBlindSimulator(Deficiency deficiency, double severity) {
+        this.deficiency = deficiency;
+        this.severity = severity;
+        double[] m = matrix(deficiency, severity);
+        m00 = m[0]; m01 = m[1]; m02 = m[2];
+        m10 = m[3]; m11 = m[4]; m12 = m[5];
+        m20 = m[6]; m21 = m[7]; m22 = m[8];
+    }
+
+    /**
+     * Simulator for a deficiency at a severity in [0,1] (1: dichromacy, 0: normal vision).
+     */
+    public static ColorBlindSimulator of(Deficiency deficiency, double severity) {
+        if (!(severity >= 0 && severity <= 1)) throw new IllegalArgumentException("severity must be in [0,1]: " + severity);
+        if (severity == 1.0) return dichromat(deficiency);
+        return new ColorBlindSimulator(deficiency, severity);
+    }
+
+    /** Full-severity simulator of a deficiency. */
+    public static ColorBlindSimulator dichromat(Deficiency deficiency) {
+        switch (deficiency) {
+            case PROTAN: return PROTANOPIA;
+            case DEUTAN: return DEUTERANOPIA;
+            default:     return TRITANOPIA;
+        }
+    }
+
+    public Deficiency getDeficiency() { return deficiency; }
+    public double getSeverity() { return severity; }
+
+    /** The 3x3 kernel (row-major, linear RGB). */
+    public double[] getMatrix() {
+        return new double[] {m00, m01, m02, m10, m11, m12, m20, m21, m22};
+    }
+
+    private static double[] matrix(Deficiency d, double severity) {
+        double[] m = d.fullSeverity.clone();
+        for (int i = 0; i < 9; i++) m[i] = severity * m[i] + ((i % 4 == 0) ? 1 - severity : 0);
+        return m;
+    }
+
+    /** Simulated packed RGB (0xRRGGBB) of a packed RGB value. */
+    public int simulate(int rgb) {
+        double r = ColorUtils.srgbToLinear((rgb >> 16) & 0xFF);
+        double g = ColorUtils.srgbToLinear((rgb >> 8) & 0xFF);
+        double b = ColorUtils.srgbToLinear(rgb & 0xFF);
+        return (ColorUtils.linearToSrgb(m00 * r + m01 * g + m02 * b) << 16)
+             | (ColorUtils.linearToSrgb(m10 * r + m11 * g + m12 * b) << 8)
+             |  ColorUtils.linearToSrgb(m20 * r + m21 * g + m22 * b);
+    }
+
+    /** Simulate n packed RGB values of in into out (may be the same array). */
+    public void simulate(int[] in, int[] out, int n) {
+        for (int i = 0; i < n; i++) out[i] = simulate(in[i]);
+    }
+
+    /** The LUT as seen with this deficiency. */
+    public PackedLUT simulate(PackedLUT lut) {
+        int[] packed = lut.toPackedArray();
+        simulate(packed, packed, packed.length);
+        return new PackedLUT(packed);
+    }
+
+    // ---- Legacy int[] API ----
 
     /**
-     * Simulate Deuteranope (green-weak) on a single RGB triplet.
+     * Simulate Deuteranope (green-blind) on a single RGB triplet.
      */
     public static int[] simulateDeuteranope(int[] rgb) {
-        // TODO: Matrix transform on RGB
-        return rgb.clone();
+        return unpack(DEUTERANOPIA.simulate(PackedLUT.pack(rgb[0], rgb[1], rgb[2])));
     }
 
     /**
-     * Simulate Tritanope (blue-weak) on a single RGB triplet.
+     * Simulate Tritanope (blue-blind) on a single RGB triplet.
      */
     public static int[] simulateTritanope(int[] rgb) {
-        // TODO: Matrix transform
-        return rgb.clone();
+        return unpack(TRITANOPIA.simulate(PackedLUT.pack(rgb[0], rgb[1], rgb[2])));
     }
 
-    // Optionally, add simulateProtan (red-weak), etc.
+    /**
+     * Simulate Protanope (red-blind) on a single RGB triplet.
+     */
+    public static int[] simulateProtanope(int[] rgb) {
+        return unpack(PROTANOPIA.simulate(PackedLUT.pack(rgb[0], rgb[1], rgb[2])));
+    }
 
     /**
-     * Simulate CVD on a full LUT.
+     * Simulate CVD on a full LUT. type is "protanope", "deuteranope" or "tritanope"; other types return a copy.
      */
     public static int[][] simulateLUT(int[][] lut, String type) {
-        int[][] out = new int[lut.length][3];
-        for (int i = 0; i < lut.length; i++) {
-            switch (type.toLowerCase()) {
-                case "deuteranope": out[i] = simulateDeuteranope(lut[i]); break;
-                case "tritanope":   out[i] = simulateTritanope(lut[i]);   break;
-                // Add more cases
-                default:            out[i] = lut[i].clone();
-            }
+        ColorBlindSimulator sim;
+        switch (type.toLowerCase(Locale.ROOT)) {
+            case "protanope":   sim = PROTANOPIA; break;
+            case "deuteranope": sim = DEUTERANOPIA; break;
+            case "tritanope":   sim = TRITANOPIA; break;
+            default:            sim = null;
         }
+        int[][] out = new int[lut.length][];
+        for (int i = 0; i < lut.length; i++)
+            out[i] = (sim == null) ? lut[i].clone() : unpack(sim.simulate(PackedLUT.pack(lut[i][0], lut[i][1], lut[i][2])));
         return out;
     }
+
+    private static int[] unpack(int rgb) {
+        return new int[] {(rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF};
+    }
 }
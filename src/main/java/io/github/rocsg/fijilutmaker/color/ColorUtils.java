@@ -3,6 +3,13 @@ package io.github.rocsg.fijilutmaker.color;
 /**
  * Color conversion utilities: RGB <-> Lab/LCH, luminance, gamut checks.
  * Reference: https://en.wikipedia.org/wiki/CIELAB_color_space
+ *
+ * The sRGB transfer function is table-driven: 8-bit sRGB to linear is a 256-entry table,
+ * and linear to 8-bit sRGB uses a bucket table plus the exact rounding thresholds of the
+ * scalar formula, so both give bit-identical results to Math.pow.
+ * The batch methods ({@link #rgbToLab(int[], float[], int)}, {@link #labToRgb(float[], int[], int)})
+ * additionally use {@link #fastCbrt(double)} and fill caller-supplied arrays. Accuracy against
+ * the scalar methods: L*, a*, b* within 1e-4 (float storage dominates), RGB output identical.
  */
 public class ColorUtils {
 
@@ -11,15 +18,38 @@ public class ColorUtils {
     private static final double REF_Y = 100.000;
     private static final double REF_Z = 108.883;
 
+    // sRGB 8-bit -> linear [0,1]
+    private static final double[] SRGB_TO_LINEAR = new double[256];
+    // Linear -> sRGB 8-bit: code at the start of each bucket, and linear value at which code c becomes c+1
+    private static final int LINEAR_BUCKETS = 4096;
+    private static final int[] LINEAR_BUCKET_CODE = new int[LINEAR_BUCKETS];
+    private static final double[] SRGB_THRESHOLD = new double[255];
+
+    static {
+        for (int i = 0; i < 256; i++) SRGB_TO_LINEAR[i] = pivotRGB(i / 255.0);
+        for (int c = 0; c < 255; c++) {
+            // Smallest v such that the scalar formula gives at least c+1 (bisection on doubles)
+            double lo = 0.0, hi = 1.0;
+            while (true) {
+                double mid = lo + (hi - lo) / 2;
+                if (mid <= lo || mid >= hi) break;
+                if (toSRGBScalar(mid) >= c + 1) hi = mid; else lo = mid;
+            }
+            SRGB_THRESHOLD[c] = hi;
+        }
+        for (int k = 0; k < LINEAR_BUCKETS; k++)
+            LINEAR_BUCKET_CODE[k] = toSRGBScalar((double) k / LINEAR_BUCKETS);
+    }
+
     /**
      * Convert RGB (0-255) to CIE Lab.
      * Returns {L*, a*, b*} (L in 0-100).
      */
     public static double[] rgbToLab(int r, int g, int b) {
         // 1. Convert RGB to [0,1]
-        double rLin = pivotRGB(r / 255.0);
-        double gLin = pivotRGB(g / 255.0);
-        double bLin = pivotRGB(b / 255.0);
+        double rLin = srgbToLinear(r);
+        double gLin = srgbToLinear(g);
+        double bLin = srgbToLinear(b);
 
         // 2. RGB to XYZ (sRGB, D65)
         double x = rLin * 0.4124 + gLin * 0.3576 + bLin * 0.1805;
@@ -79,6 +109,14 @@ public class ColorUtils {
 
 
      public static int[] labToRgb(double L, double a, double bLab) {
+        int rgb = labToPackedRgb(L, a, bLab);
+        return new int[] {(rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF};
+    }
+
+    /**
+     * Convert CIE Lab to packed RGB (0xRRGGBB), without allocating. May clip values if out of gamut.
+     */
+    public static int labToPackedRgb(double L, double a, double bLab) {
         // 1. Lab to XYZ
         double fy = (L + 16.0) / 116.0;
         double fx = a / 500.0 + fy;
@@ -105,7 +143,7 @@ public class ColorUtils {
         int g = toSRGB(gLin);
         int b = toSRGB(bLin);
 
-        return new int[] {r, g, b};
+        return (r << 16) | (g << 8) | b;
     }
 
     /**
@@ -113,9 +151,9 @@ public class ColorUtils {
      */
     public static double luminance(int r, int g, int b) {
         // Use linear RGB → Y in XYZ
-        double rLin = pivotRGB(r / 255.0);
-        double gLin = pivotRGB(g / 255.0);
-        double bLin = pivotRGB(b / 255.0);
+        double rLin = srgbToLinear(r);
+        double gLin = srgbToLinear(g);
+        double bLin = srgbToLinear(b);
 
         double y = rLin * 0.2126 + gLin * 0.7152 + bLin * 0.0722;
         return y * 100.0;
@@ -143,6 +181,16 @@ public class ColorUtils {
         return labToRgb(L, a, bLab);
     }
 
+    /**
+     * Convert LCH (Lab cylindrical) to packed RGB (0xRRGGBB).
+     */
+    public static int lchToPackedRgb(double L, double C, double H) {
+        double hRad = Math.toRadians(H);
+        double a = C * Math.cos(hRad);
+        double bLab = C * Math.sin(hRad);
+        return labToPackedRgb(L, a, bLab);
+    }
+
     /**
      * Returns true if RGB is displayable in sRGB (0-255).
      */
@@ -151,11 +199,133 @@ public class ColorUtils {
         return true;
     }
 
+    /**
+     * CIE76 color difference (Euclidean distance in Lab).
+     */
+    public static double deltaE76(double L1, double a1, double b1, double L2, double a2, double b2) {
+        double dL = L1 - L2, da = a1 - a2, db = b1 - b2;
+        return Math.sqrt(dL * dL + da * da + db * db);
+    }
+
+    /**
+     * CIEDE2000 color difference (kL = kC = kH = 1), after Sharma, Wu and Dalal (2005).
+     */
+    public static double deltaE2000(double L1, double a1, double b1, double L2, double a2, double b2) {
+        double c1 = Math.sqrt(a1 * a1 + b1 * b1), c2 = Math.sqrt(a2 * a2 + b2 * b2);
+        double cMean = (c1 + c2) / 2, cMean7 = Math.pow(cMean, 7);
+        double g = 0.5 * (1 - Math.sqrt(cMean7 / (cMean7 + POW25_7)));
+        double ap1 = (1 + g) * a1, ap2 = (1 + g) * a2;
+        double cp1 = Math.sqrt(ap1 * ap1 + b1 * b1), cp2 = Math.sqrt(ap2 * ap2 + b2 * b2);
+        double hp1 = (ap1 == 0 && b1 == 0) ? 0 : Math.atan2(b1, ap1);
+        double hp2 = (ap2 == 0 && b2 == 0) ? 0 : Math.atan2(b2, ap2);
+        if (hp1 < 0) hp1 += 2 * Math.PI;
+        if (hp2 < 0) hp2 += 2 * Math.PI;
+
+        double dLp = L2 - L1, dCp = cp2 - cp1;
+        double dhp = 0;
+        if (cp1 * cp2 != 0) {
+            dhp = hp2 - hp1;
+            if (dhp > Math.PI) dhp -= 2 * Math.PI;
+            else if (dhp < -Math.PI) dhp += 2 * Math.PI;
+        }
+        double dHp = 2 * Math.sqrt(cp1 * cp2) * Math.sin(dhp / 2);
+
+        double lpMean = (L1 + L2) / 2, cpMean = (cp1 + cp2) / 2;
+        double hpMean = hp1 + hp2;
+        if (cp1 * cp2 != 0) {
+            if (Math.abs(hp1 - hp2) <= Math.PI) hpMean /= 2;
+            else hpMean = (hpMean < 2 * Math.PI) ? (hpMean + 2 * Math.PI) / 2 : (hpMean - 2 * Math.PI) / 2;
+        }
+        double t = 1 - 0.17 * Math.cos(hpMean - Math.toRadians(30)) + 0.24 * Math.cos(2 * hpMean)
+                 + 0.32 * Math.cos(3 * hpMean + Math.toRadians(6)) - 0.20 * Math.cos(4 * hpMean - Math.toRadians(63));
+        double dTheta = Math.toRadians(30) * Math.exp(-Math.pow((Math.toDegrees(hpMean) - 275) / 25, 2));
+        double cpMean7 = Math.pow(cpMean, 7);
+        double rc = 2 * Math.sqrt(cpMean7 / (cpMean7 + POW25_7));
+        double l50 = (lpMean - 50) * (lpMean - 50);
+        double sl = 1 + 0.015 * l50 / Math.sqrt(20 + l50);
+        double sc = 1 + 0.045 * cpMean;
+        double sh = 1 + 0.015 * cpMean * t;
+        double rt = -Math.sin(2 * dTheta) * rc;
+
+        double x = dLp / sl, y = dCp / sc, z = dHp / sh;
+        return Math.sqrt(x * x + y * y + z * z + rt * y * z);
+    }
+    private static final double POW25_7 = 6103515625.0; // 25^7
+
+    /**
+     * sRGB component (0-255) to linear [0,1], via table for in-range values.
+     */
+    public static double srgbToLinear(int c) {
+        return (c >= 0 && c <= 255) ? SRGB_TO_LINEAR[c] : pivotRGB(c / 255.0);
+    }
+
+    /**
+     * Linear component to sRGB (0-255, clipped). Same result as the pow-based formula, without calling pow.
+     */
+    public static int linearToSrgb(double v) {
+        if (v >= 1.0) return 255;
+        if (v <= 0.0) return 0;
+        int k = Math.min((int) (v * LINEAR_BUCKETS), LINEAR_BUCKETS - 1);
+        int c = LINEAR_BUCKET_CODE[k];
+        while (c < 255 && v >= SRGB_THRESHOLD[c]) c++;
+        return c;
+    }
+
+    /**
+     * Cube root for positive arguments: bit-level initial guess refined by two Halley steps.
+     * Relative error below 1e-12 over the range used by Lab conversion.
+     */
+    public static double fastCbrt(double x) {
+        double y = Double.longBitsToDouble(Double.doubleToRawLongBits(x) / 3 + 0x2A9F7893782DA1CEL);
+        double y3 = y * y * y;
+        y = y * (y3 + 2 * x) / (2 * y3 + x);
+        y3 = y * y * y;
+        y = y * (y3 + 2 * x) / (2 * y3 + x);
+        return y;
+    }
+
+    // ---- Batch conversions (caller-supplied arrays, no allocation) ----
+
+    /**
+     * Convert n packed RGB values (0xRRGGBB) to Lab, written as interleaved {L, a, b} triplets in labOut (length >= 3n).
+     */
+    public static void rgbToLab(int[] packedIn, float[] labOut, int n) {
+        for (int i = 0, o = 0; i < n; i++, o += 3) {
+            int rgb = packedIn[i];
+            double rLin = SRGB_TO_LINEAR[(rgb >> 16) & 0xFF];
+            double gLin = SRGB_TO_LINEAR[(rgb >> 8) & 0xFF];
+            double bLin = SRGB_TO_LINEAR[rgb & 0xFF];
+
+            double x = (rLin * 0.4124 + gLin * 0.3576 + bLin * 0.1805) * 100.0;
+            double y = (rLin * 0.2126 + gLin * 0.7152 + bLin * 0.0722) * 100.0;
+            double z = (rLin * 0.0193 + gLin * 0.1192 + bLin * 0.9505) * 100.0;
+
+            double fx = fastPivotXYZ(x / REF_X);
+            double fy = fastPivotXYZ(y / REF_Y);
+            double fz = fastPivotXYZ(z / REF_Z);
+
+            labOut[o]     = (float) (116.0 * fy - 16.0);
+            labOut[o + 1] = (float) (500.0 * (fx - fy));
+            labOut[o + 2] = (float) (200.0 * (fy - fz));
+        }
+    }
+
+    /**
+     * Convert n interleaved {L, a, b} triplets to packed RGB (0xRRGGBB), clipping out-of-gamut values.
+     */
+    public static void labToRgb(float[] labIn, int[] packedOut, int n) {
+        for (int i = 0, o = 0; i < n; i++, o += 3)
+            packedOut[i] = labToPackedRgb(labIn[o], labIn[o + 1], labIn[o + 2]);
+    }
+
     // Helper: sRGB gamma correction
     private static double pivotRGB(double v) {
         return (v <= 0.04045) ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
     }
     private static int toSRGB(double v) {
+        return linearToSrgb(v);
+    }
+    private static int toSRGBScalar(double v) {
         v = (v <= 0.0031308) ? 12.92 * v : 1.055 * Math.pow(v, 1/2.4) - 0.055;
         int out = (int)Math.round(v * 255.0);
         return Math.max(0, Math.min(255, out));
@@ -164,6 +334,9 @@ public class ColorUtils {
     private static double pivotXYZ(double t) {
         return (t > 0.008856) ? Math.cbrt(t) : (7.787 * t + 16.0/116.0);
     }
+    private static double fastPivotXYZ(double t) {
+        return (t > 0.008856) ? fastCbrt(t) : (7.787 * t + 16.0/116.0);
+    }
     private static double invPivotXYZ(double ft) {
         double ft3 = ft*ft*ft;
         return (ft3 > 0.008856) ? ft3 : (ft - 16.0/116.0) / 7.787;
@@ -4,7 +4,9 @@ package io.github.rocsg.fijilutmaker.color;
  * DaltonizeUtils
  * Utilities for simulating color vision deficiency (deuteranopia, tritanopia).
  * See: Machado et al., 2009 - A Physiologically-based Model for Simulation of Color Vision Deficiency
+ * @deprecated gamma-space approximations; use ColorBlindSimulator (Machado matrices in linear RGB).
  */
+@Deprecated
 public class DaltonizeUtils {
 
     // Deuteranope simulation (R, G, B in [0,255])
@@ -1,19 +1,204 @@
 package io.github.rocsg.fijilutmaker.io;
 
 import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
 /**
  * Export Colormap/LUT to ImageJ, CSV, or other formats.
+ * Every file is written through a FileChannel from a single buffer (or, for CSV and PNG, a fixed-size buffer
+ * flushed as it fills), straight from the packed LUT values. Uses no AWT class, so it can run headless.
+ * PNG rows are deflated directly into IDAT chunks of at most PNG_IDAT_BYTES, each written as soon as it is full.
  */
 public class LUTExporter {
 
-    public static void exportToImageJ(Colormap cmap, File file) {
-        // TODO: Write as 768-byte .lut file.
+    public enum Format {
+        /** ImageJ .lut: 256 reds, 256 greens, 256 blues (other LUT sizes are resampled to 256). */
+        LUT(".lut"),
+        /** index,r,g,b with a header line, one line per entry (any LUT size). */
+        CSV(".csv"),
+        /** Horizontal ramp, one column per entry (any LUT size). */
+        PNG(".png");
+
+        public final String extension;
+        Format(String extension) { this.extension = extension; }
+    }
+
+    static final int CSV_BUFFER_BYTES = 1 << 16;
+    private static final int CSV_LINE_MAX = 24; // longest line: 10-digit index,255,255,255\n
+    static final int PNG_IDAT_BYTES = 1 << 16;
+
+    /**
+     * Generate the LUT once and write it in every requested format, as dir/name + extension.
+     * @param pngHeight rows of the PNG ramp
+     */
+    public static void export(Colormap cmap, Path dir, String name, Set<Format> formats, int pngHeight) throws IOException {
+        export(cmap.generatePackedLUT(), dir, name, formats, pngHeight);
+    }
+
+    public static void export(PackedLUT lut, Path dir, String name, Set<Format> formats, int pngHeight) throws IOException {
+        for (Format f : Format.values()) {
+            if (!formats.contains(f)) continue;
+            Path file = dir.resolve(name + f.extension);
+            switch (f) {
+                case LUT: writeImageJ(lut, file); break;
+                case CSV: writeCSV(lut, file); break;
+                default:  writePNG(lut, file, pngHeight);
+            }
+        }
+    }
+
+    /**
+     * Write as 768-byte .lut file (256 reds, 256 greens, 256 blues); other LUT sizes are resampled to 256.
+     */
+    public static void exportToImageJ(Colormap cmap, File file) throws IOException {
+        writeImageJ(cmap.generatePackedLUT(), file.toPath());
+    }
+
+    public static void exportToImageJ(PackedLUT lut, File file) throws IOException {
+        writeImageJ(lut, file.toPath());
+    }
+
+    /**
+     * Write as csv (index,r,g,b), one line per LUT entry (any LUT size).
+     */
+    public static void exportToCSV(Colormap cmap, File file) throws IOException {
+        writeCSV(cmap.generatePackedLUT(), file.toPath());
+    }
+
+    public static void exportToCSV(PackedLUT lut, File file) throws IOException {
+        writeCSV(lut, file.toPath());
+    }
+
+    /**
+     * Write a horizontal ramp as an 8-bit RGB PNG: one column per LUT entry, height rows.
+     */
+    public static void exportToPNG(PackedLUT lut, File file, int height) throws IOException {
+        writePNG(lut, file.toPath(), height);
+    }
+
+    // ---- Writers ----
+
+    private static void writeImageJ(PackedLUT lut, Path file) throws IOException {
+        PackedLUT l = lut.resample(256);
+        ByteBuffer buf = ByteBuffer.allocate(768);
+        for (int i = 0; i < 256; i++) {
+            int v = l.get(i);
+            buf.put(i, (byte) (v >> 16));
+            buf.put(256 + i, (byte) (v >> 8));
+            buf.put(512 + i, (byte) v);
+        }
+        try (FileChannel ch = create(file)) {
+            writeFully(ch, buf);
+        }
+    }
+
+    private static void writeCSV(PackedLUT lut, Path file) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(CSV_BUFFER_BYTES);
+        try (FileChannel ch = create(file)) {
+            buf.put("index,r,g,b\n".getBytes(StandardCharsets.US_ASCII));
+            for (int i = 0; i < lut.size(); i++) {
+                if (buf.remaining() < CSV_LINE_MAX) {
+                    buf.flip();
+                    writeFully(ch, buf);
+                    buf.clear();
+                }
+                int v = lut.get(i);
+                putDecimal(buf, i);
+                buf.put((byte) ',');
+                putDecimal(buf, (v >> 16) & 0xFF);
+                buf.put((byte) ',');
+                putDecimal(buf, (v >> 8) & 0xFF);
+                buf.put((byte) ',');
+                putDecimal(buf, v & 0xFF);
+                buf.put((byte) '\n');
+            }
+            buf.flip();
+            writeFully(ch, buf);
+        }
+    }
+
+    private static void writePNG(PackedLUT lut, Path file, int height) throws IOException {
+        if (height < 1) throw new IllegalArgumentException("PNG height must be at least 1");
+        int width = lut.size();
+        byte[] row = new byte[1 + 3 * width]; // filter byte 0 (None), then RGB
+        for (int i = 0; i < width; i++) {
+            int v = lut.get(i);
+            row[1 + 3 * i] = (byte) (v >> 16);
+            row[2 + 3 * i] = (byte) (v >> 8);
+            row[3 + 3 * i] = (byte) v;
+        }
+        ByteBuffer head = ByteBuffer.allocate(8 + 12 + 13);
+        head.put(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'});
+        ByteBuffer ihdr = ByteBuffer.allocate(13);
+        ihdr.putInt(width).putInt(height).put(new byte[] {8, 2, 0, 0, 0}); // 8 bits, truecolor, deflate, no interlace
+        byte[] t = "IHDR".getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(t);
+        crc.update(ihdr.array());
+        head.putInt(13).put(t).put(ihdr.array()).putInt((int) crc.getValue());
+        head.flip();
+
+        // One chunk buffer: length and type, then the deflater writes the data in place, then the CRC
+        ByteBuffer chunk = ByteBuffer.allocate(12 + PNG_IDAT_BYTES);
+        Deflater z = new Deflater();
+        try (FileChannel ch = create(file)) {
+            writeFully(ch, head);
+            int filled = 0;
+            for (int y = 0; y < height; y++) {
+                z.setInput(row);
+                while (!z.needsInput()) filled = deflate(z, ch, chunk, filled);
+            }
+            z.finish();
+            while (!z.finished()) filled = deflate(z, ch, chunk, filled);
+            if (filled > 0) writeChunk(ch, chunk, "IDAT", filled);
+            writeChunk(ch, chunk, "IEND", 0);
+        } finally {
+            z.end();
+        }
+    }
+
+    // Deflate into the chunk data after filled bytes; a full chunk is written out. Returns the new fill.
+    private static int deflate(Deflater z, FileChannel ch, ByteBuffer chunk, int filled) throws IOException {
+        filled += z.deflate(chunk.array(), 8 + filled, PNG_IDAT_BYTES - filled);
+        if (filled < PNG_IDAT_BYTES) return filled;
+        writeChunk(ch, chunk, "IDAT", PNG_IDAT_BYTES);
+        return 0;
+    }
+
+    // Write the chunk whose length bytes of data are already at offset 8 of chunk
+    private static void writeChunk(FileChannel ch, ByteBuffer chunk, String type, int length) throws IOException {
+        chunk.clear();
+        chunk.putInt(0, length);
+        for (int i = 0; i < 4; i++) chunk.put(4 + i, (byte) type.charAt(i));
+        CRC32 crc = new CRC32();
+        crc.update(chunk.array(), 4, 4 + length); // type and data
+        chunk.putInt(8 + length, (int) crc.getValue());
+        chunk.limit(12 + length);
+        writeFully(ch, chunk);
+    }
+
+    // Non-negative int as ASCII digits, without going through a String
+    private static void putDecimal(ByteBuffer buf, int v) {
+        if (v >= 10) putDecimal(buf, v / 10);
+        buf.put((byte) ('0' + v % 10));
+    }
+
+    private static FileChannel create(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
     }
 
-    public static void exportToCSV(Colormap cmap, File file) {
-        // TODO: Write as csv (index, r, g, b).
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) ch.write(buf);
     }
 
     // Add: exportToNapari, exportToPythonScript, etc.
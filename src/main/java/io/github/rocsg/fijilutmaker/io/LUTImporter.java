@@ -1,22 +1,197 @@
 package io.github.rocsg.fijilutmaker.io;
 
+import io.github.rocsg.fijilutmaker.color.ColorUtils;
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
 import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import io.github.rocsg.fijilutmaker.utils.InterpolationPlan;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Import LUT from ImageJ .lut, .csv, etc. Returns Colormap objects.
+ * The LUT is read in full, then reduced to the smallest set of control points (Douglas-Peucker
+ * in the chosen linear interpolation mode) that regenerates every entry within a ΔE76 tolerance.
+ * With tolerance 0 (the default) the colormap regenerates the original LUT exactly at its size.
  */
 public class LUTImporter {
 
-    public static Colormap importFromImageJ(File file) {
-        // TODO: Read 768 bytes, create Colormap with evenly spaced ColorPoints.
-        return null;
+    public static final InterpolationMode DEFAULT_MODE = InterpolationMode.LINEAR_RGB;
+
+    public static Colormap importFromImageJ(File file) throws IOException {
+        return importFromImageJ(file, DEFAULT_MODE, 0);
+    }
+
+    /**
+     * @param mode linear interpolation mode of the resulting colormap (LINEAR_RGB, LINEAR_LAB or LINEAR_LCH)
+     * @param tolerance maximum ΔE76 between the original and the regenerated entries (0: identical RGB)
+     */
+    public static Colormap importFromImageJ(File file, InterpolationMode mode, double tolerance) throws IOException {
+        return fit(readImageJ(file.toPath()), mode, tolerance);
+    }
+
+    public static Colormap importFromCSV(File file) throws IOException {
+        return importFromCSV(file, DEFAULT_MODE, 0);
+    }
+
+    public static Colormap importFromCSV(File file, InterpolationMode mode, double tolerance) throws IOException {
+        return fit(readCSV(file.toPath()), mode, tolerance);
+    }
+
+    // ---- Readers ----
+
+    /**
+     * Read an ImageJ/NIH binary LUT: a raw file of 768 bytes (256 reds, greens, blues; 970-byte raw files
+     * are read the same way, as ImageJ does), or a 32-byte "ICOL" header with nColors in [2, 256] followed by
+     * the three planes, trailing bytes being ignored. Other files, and headers declaring an invalid number
+     * of colors, are rejected rather than guessed at.
+     */
+    public static PackedLUT readImageJ(Path file) throws IOException {
+        return parseImageJ(Files.readAllBytes(file), file.getFileName().toString());
+    }
+
+    static PackedLUT parseImageJ(byte[] b, String name) throws IOException {
+        int offset = 0, n = 256;
+        if (b.length >= 32 + 3 * 2 && b[0] == 'I' && b[1] == 'C' && b[2] == 'O' && b[3] == 'L') {
+            offset = 32;
+            n = ((b[6] & 0xFF) << 8) | (b[7] & 0xFF); // nColors, big-endian
+            if (n < 2 || n > 256) throw new IOException("Invalid number of colors in ImageJ LUT header (" + n + "): " + name);
+            if (b.length < offset + 3 * n)
+                throw new IOException("Truncated ImageJ LUT: " + (offset + 3 * n) + " bytes expected, " + b.length + " found: " + name);
+        } else if (b.length != 768 && b.length != 970) {
+            throw new IOException("Not an ImageJ LUT (" + b.length + " bytes, expected 768): " + name);
+        }
+        return PackedLUT.fromBytePlanes(Arrays.copyOfRange(b, offset, offset + n),
+                Arrays.copyOfRange(b, offset + n, offset + 2 * n),
+                Arrays.copyOfRange(b, offset + 2 * n, offset + 3 * n));
+    }
+
+    /**
+     * Read a CSV LUT: one line per entry, either r,g,b or index,r,g,b (comma, semicolon, tab or space
+     * separated), with an optional header line. Values in [0,1] with decimals are scaled to [0,255].
+     */
+    public static PackedLUT readCSV(Path file) throws IOException {
+        return parseCSV(Files.readAllBytes(file), file.getFileName().toString());
     }
 
-    public static Colormap importFromCSV(File file) {
-        // TODO: Parse csv, build Colormap.
-        return null;
+    static PackedLUT parseCSV(byte[] bytes, String name) throws IOException {
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        List<double[]> rows = new ArrayList<>();
+        boolean fractional = false;
+        double max = 0;
+        int lineNo = 0;
+        for (String line : text.split("\r?\n")) {
+            lineNo++;
+            String t = line.trim();
+            if (t.isEmpty() || t.startsWith("#")) continue;
+            String[] f = t.split("[,;\\t ]+");
+            double[] v = new double[f.length];
+            try {
+                for (int i = 0; i < f.length; i++) v[i] = Double.parseDouble(f[i]);
+            } catch (NumberFormatException e) {
+                if (rows.isEmpty()) continue; // header
+                throw new IOException(name + ":" + lineNo + ": not a number in '" + t + "'");
+            }
+            if (v.length != 3 && v.length != 4)
+                throw new IOException(name + ":" + lineNo + ": expected r,g,b or index,r,g,b");
+            double[] rgb = Arrays.copyOfRange(v, v.length - 3, v.length);
+            for (int i = 0; i < 3; i++) {
+                fractional |= rgb[i] != Math.rint(rgb[i]);
+                max = Math.max(max, rgb[i]);
+            }
+            rows.add(rgb);
+        }
+        if (rows.size() < 2) throw new IOException("CSV LUT needs at least 2 entries: " + name);
+        double scale = (fractional && max <= 1.0) ? 255.0 : 1.0;
+        int[] packed = new int[rows.size()];
+        for (int i = 0; i < packed.length; i++) {
+            double[] c = rows.get(i);
+            packed[i] = PackedLUT.pack(channel(c[0] * scale), channel(c[1] * scale), channel(c[2] * scale));
+        }
+        return new PackedLUT(packed);
     }
 
-    // Add: importFromNapari, importFromJson, etc., as needed.
+    private static int channel(double v) {
+        return (int) Math.max(0, Math.min(255, Math.round(v)));
+    }
+
+    // ---- Control point fitting ----
+
+    /**
+     * Colormap of lut.size() entries whose control points reproduce lut within tolerance (ΔE76), in a linear mode.
+     * Entries are kept as control points by Douglas-Peucker: a segment between two kept entries is split at its
+     * worst entry until every entry regenerated by the colormap is within tolerance (tolerance 0: same RGB).
+     */
+    public static Colormap fit(PackedLUT lut, InterpolationMode mode, double tolerance) {
+        if (mode != InterpolationMode.LINEAR_RGB && mode != InterpolationMode.LINEAR_LAB && mode != InterpolationMode.LINEAR_LCH)
+            throw new IllegalArgumentException("Fitting requires a linear interpolation mode, not " + mode);
+        if (!(tolerance >= 0)) throw new IllegalArgumentException("Tolerance must be >= 0");
+        int n = lut.size();
+        int[] original = lut.toPackedArray();
+        float[] originalLab = new float[3 * n];
+        ColorUtils.rgbToLab(original, originalLab, n);
+        ColorPoint[] points = new ColorPoint[n]; // created on demand, at the exact sampling positions
+        double[] ts = new double[n];
+        int[] predicted = new int[n];
+        float[] predictedLab = new float[3 * n];
+
+        boolean[] keep = new boolean[n];
+        keep[0] = keep[n - 1] = true;
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int b = stack[--top], a = stack[--top];
+            if (b - a < 2) continue;
+            InterpolationPlan plan = new InterpolationPlan(Arrays.asList(point(points, original, a, n), point(points, original, b, n)), mode);
+            int m = b - a - 1;
+            for (int k = 0; k < m; k++) ts[k] = (double) (a + 1 + k) / (n - 1);
+            plan.evaluate(ts, predicted, m);
+            ColorUtils.rgbToLab(predicted, predictedLab, m);
+            int worst = -1;
+            double worstErr = -1;
+            for (int k = 0; k < m; k++) {
+                int i = a + 1 + k;
+                if (predicted[k] == original[i]) continue;
+                double dL = predictedLab[3 * k] - originalLab[3 * i];
+                double da = predictedLab[3 * k + 1] - originalLab[3 * i + 1];
+                double db = predictedLab[3 * k + 2] - originalLab[3 * i + 2];
+                double err = Math.sqrt(dL * dL + da * da + db * db);
+                if ((err > tolerance || tolerance == 0) && err > worstErr) {
+                    worst = i;
+                    worstErr = err;
+                }
+            }
+            if (worst < 0) continue;
+            keep[worst] = true;
+            stack[top++] = a;
+            stack[top++] = worst;
+            stack[top++] = worst;
+            stack[top++] = b;
+        }
+
+        List<ColorPoint> kept = new ArrayList<>();
+        for (int i = 0; i < n; i++) if (keep[i]) kept.add(point(points, original, i, n));
+        Colormap cm = new Colormap();
+        cm.setPoints(kept);
+        cm.setInterpolationMode(mode);
+        cm.setLutSize(n);
+        return cm;
+    }
+
+    private static ColorPoint point(ColorPoint[] points, int[] packed, int i, int n) {
+        if (points[i] == null) {
+            int v = packed[i];
+            points[i] = new ColorPoint((double) i / (n - 1), new int[] {(v >> 16) & 0xFF, (v >> 8) & 0xFF, v & 0xFF});
+        }
+        return points[i];
+    }
 }
@@ -0,0 +1,299 @@
+package io.github.rocsg.fijilutmaker.io;
+
+import io.github.rocsg.fijilutmaker.model.ColormapValidator;
+import io.github.rocsg.fijilutmaker.model.LUTAnalysis;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Index of a directory tree of LUT files (.lut and .csv) with precomputed quality metrics.
+ * The index is stored in a compact binary file. A rescan reuses the entry of every file whose size and
+ * modification time are unchanged, and the metrics of any file with identical content (same 64-bit hash),
+ * so only new or edited files are read and analyzed; those are processed in parallel.
+ * Queries filter the in-memory entries and never touch the LUT files.
+ */
+public class LUTLibraryIndex {
+
+    static final int MAGIC = 0x464C5458; // "FLTX"
+    static final int VERSION = 2;
+
+    // One reusable analysis per scanning thread
+    private static final ThreadLocal<LUTAnalysis> ANALYSIS = ThreadLocal.withInitial(LUTAnalysis::new);
+
+    private final Path root;
+    private final Path indexFile;
+    private volatile List<Entry> entries = Collections.emptyList(); // sorted by path
+
+    /**
+     * Metrics of one LUT file. Unreadable files are kept (so they are not re-read while unchanged) with isValid() false.
+     */
+    public static final class Entry {
+        private final String path; // relative to the root, '/' separated
+        private final long fileSize, modified, hash;
+        private final int lutSize;  // 0 if the file could not be read
+        private final boolean monotone, colorblindSafe;
+        private final float meanDeltaE, maxDeltaE, uniformity, meanDeltaE2000, maxDeltaE2000;
+
+        Entry(String path, long fileSize, long modified, long hash, int lutSize, boolean monotone, boolean colorblindSafe,
+              float meanDeltaE, float maxDeltaE, float uniformity, float meanDeltaE2000, float maxDeltaE2000) {
+            this.path = path; this.fileSize = fileSize; this.modified = modified; this.hash = hash;
+            this.lutSize = lutSize; this.monotone = monotone; this.colorblindSafe = colorblindSafe;
+            this.meanDeltaE = meanDeltaE; this.maxDeltaE = maxDeltaE; this.uniformity = uniformity;
+            this.meanDeltaE2000 = meanDeltaE2000; this.maxDeltaE2000 = maxDeltaE2000;
+        }
+
+        Entry withFile(String path, long fileSize, long modified) {
+            return new Entry(path, fileSize, modified, hash, lutSize, monotone, colorblindSafe,
+                    meanDeltaE, maxDeltaE, uniformity, meanDeltaE2000, maxDeltaE2000);
+        }
+
+        public String getPath() { return path; }
+        public long getFileSize() { return fileSize; }
+        public long getModified() { return modified; }
+        public long getHash() { return hash; }
+        public boolean isValid() { return lutSize > 0; }
+        public int getLutSize() { return lutSize; }
+        public boolean isMonotoneLuminance() { return monotone; }
+        public boolean isColorblindSafe() { return colorblindSafe; }
+        /** Mean ΔE76 between consecutive entries. */
+        public double getMeanDeltaE() { return meanDeltaE; }
+        /** Largest ΔE76 between consecutive entries. */
+        public double getMaxDeltaE() { return maxDeltaE; }
+        /** Mean CIEDE2000 difference between consecutive entries. */
+        public double getMeanDeltaE2000() { return meanDeltaE2000; }
+        /** Largest CIEDE2000 difference between consecutive entries. */
+        public double getMaxDeltaE2000() { return maxDeltaE2000; }
+        /** Coefficient of variation of the ΔE76 steps (0 = perceptually uniform). */
+        public double getUniformity() { return uniformity; }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s [%d entries, monotone=%b, cvdSafe=%b, meanΔE=%.3f, meanΔE00=%.3f, uniformity=%.3f]",
+                    path, lutSize, monotone, colorblindSafe, meanDeltaE, meanDeltaE2000, uniformity);
+        }
+    }
+
+    /** Filter on entries; unset criteria match everything. Invalid entries never match. */
+    public static final class Query {
+        private Boolean monotone, colorblindSafe;
+        private double maxUniformity = Double.POSITIVE_INFINITY;
+        private double minMeanDeltaE = 0;
+        private double maxStepDeltaE2000 = Double.POSITIVE_INFINITY;
+        private String pathContains;
+
+        public Query monotoneLuminance(boolean v) { monotone = v; return this; }
+        public Query colorblindSafe(boolean v) { colorblindSafe = v; return this; }
+        public Query maxUniformity(double v) { maxUniformity = v; return this; }
+        public Query minMeanDeltaE(double v) { minMeanDeltaE = v; return this; }
+        /** No step between consecutive entries larger than v (CIEDE2000). */
+        public Query maxStepDeltaE2000(double v) { maxStepDeltaE2000 = v; return this; }
+        public Query pathContains(String s) { pathContains = s.toLowerCase(Locale.ROOT); return this; }
+
+        public boolean matches(Entry e) {
+            return e.isValid()
+                && (monotone == null || e.monotone == monotone)
+                && (colorblindSafe == null || e.colorblindSafe == colorblindSafe)
+                && e.uniformity <= maxUniformity
+                && e.meanDeltaE >= minMeanDeltaE
+                && e.maxDeltaE2000 <= maxStepDeltaE2000
+                && (pathContains == null || e.path.toLowerCase(Locale.ROOT).contains(pathContains));
+        }
+    }
+
+    /** Counts of the last rescan. */
+    public static final class ScanResult {
+        public final int files, reused, analyzed, failed, removed;
+
+        ScanResult(int files, int reused, int analyzed, int failed, int removed) {
+            this.files = files; this.reused = reused; this.analyzed = analyzed; this.failed = failed; this.removed = removed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files: %d unchanged, %d analyzed, %d unreadable, %d removed",
+                    files, reused, analyzed, failed, removed);
+        }
+    }
+
+    public LUTLibraryIndex(Path root, Path indexFile) {
+        this.root = root;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Index of root stored in indexFile, loaded if the file exists (an unreadable or outdated index is ignored).
+     * Call {@link #rescan()} to bring it up to date.
+     */
+    public static LUTLibraryIndex open(Path root, Path indexFile) {
+        LUTLibraryIndex index = new LUTLibraryIndex(root, indexFile);
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                index.entries = read(indexFile);
+            } catch (IOException e) {
+                index.entries = Collections.emptyList(); // rebuilt by the next rescan
+            }
+        }
+        return index;
+    }
+
+    public List<Entry> getEntries() { return entries; }
+
+    public List<Entry> query(Query q) {
+        List<Entry> out = new ArrayList<>();
+        for (Entry e : entries) if (q.matches(e)) out.add(e);
+        return out;
+    }
+
+    /**
+     * Walk the directory, analyze new or modified files in parallel, drop deleted ones, and save the index.
+     */
+    public ScanResult rescan() throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.walk(root)) {
+            files = s.filter(p -> {
+                String n = p.getFileName().toString().toLowerCase(Locale.ROOT);
+                return (n.endsWith(".lut") || n.endsWith(".csv")) && Files.isRegularFile(p) && !p.equals(indexFile);
+            }).sorted().collect(Collectors.toList());
+        }
+        Map<String, Entry> byPath = new HashMap<>();
+        Map<Long, Entry> byHash = new HashMap<>();
+        for (Entry e : entries) {
+            byPath.put(e.path, e);
+            if (e.isValid()) byHash.putIfAbsent(e.hash, e);
+        }
+
+        AtomicInteger reused = new AtomicInteger(), analyzed = new AtomicInteger(), failed = new AtomicInteger();
+        List<Entry> updated;
+        try {
+            updated = files.parallelStream().map(p -> {
+                try {
+                    return indexFile(p, byPath, byHash, reused, analyzed, failed);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // Relative paths are compared as strings: Path ordering is platform dependent
+        Set<String> present = new HashSet<>();
+        for (Entry e : updated) present.add(e.path);
+        int removed = 0;
+        for (Entry e : entries) if (!present.contains(e.path)) removed++;
+        entries = Collections.unmodifiableList(updated);
+        save();
+        return new ScanResult(files.size(), reused.get(), analyzed.get(), failed.get(), removed);
+    }
+
+    private Entry indexFile(Path p, Map<String, Entry> byPath, Map<Long, Entry> byHash,
+                            AtomicInteger reused, AtomicInteger analyzed, AtomicInteger failed) throws IOException {
+        String rel = root.relativize(p).toString().replace('\\', '/');
+        BasicFileAttributes attr = Files.readAttributes(p, BasicFileAttributes.class);
+        long size = attr.size(), modified = attr.lastModifiedTime().toMillis();
+        Entry old = byPath.get(rel);
+        if (old != null && old.fileSize == size && old.modified == modified) {
+            reused.incrementAndGet();
+            return old;
+        }
+        byte[] bytes = Files.readAllBytes(p);
+        long hash = hash(bytes);
+        Entry same = byHash.get(hash);
+        if (same != null) {
+            reused.incrementAndGet();
+            return same.withFile(rel, size, modified);
+        }
+        PackedLUT lut;
+        try {
+            lut = rel.toLowerCase(Locale.ROOT).endsWith(".csv") ? LUTImporter.parseCSV(bytes, rel) : LUTImporter.parseImageJ(bytes, rel);
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            return new Entry(rel, size, modified, hash, 0, false, false, 0f, 0f, 0f, 0f, 0f);
+        }
+        analyzed.incrementAndGet();
+        LUTAnalysis a = ANALYSIS.get().analyze(lut);
+        return new Entry(rel, size, modified, hash, lut.size(), a.isMonotoneLuminance(), ColormapValidator.isColorblindSafe(lut),
+                (float) a.getMeanDeltaE76(), (float) a.getMaxDeltaE76(), (float) a.getUniformity(),
+                (float) a.getMeanDeltaE2000(), (float) a.getMaxDeltaE2000());
+    }
+
+    /** 64-bit FNV-1a of the file content. */
+    static long hash(byte[] bytes) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // ---- Binary index file ----
+
+    /** Write the index next to its final location, then move it into place. */
+    public void save() throws IOException {
+        Path parent = indexFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, "lutindex", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            List<Entry> list = entries;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(list.size());
+            for (Entry e : list) {
+                out.writeUTF(e.path);
+                out.writeLong(e.fileSize);
+                out.writeLong(e.modified);
+                out.writeLong(e.hash);
+                out.writeInt(e.lutSize);
+                out.writeByte((e.monotone ? 1 : 0) | (e.colorblindSafe ? 2 : 0));
+                out.writeFloat(e.meanDeltaE);
+                out.writeFloat(e.maxDeltaE);
+                out.writeFloat(e.uniformity);
+                out.writeFloat(e.meanDeltaE2000);
+                out.writeFloat(e.maxDeltaE2000);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static List<Entry> read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a current LUT index: " + file);
+            int n = in.readInt();
+            if (n < 0) throw new IOException("Corrupt LUT index: " + file);
+            List<Entry> list = new ArrayList<>(Math.min(n, 1 << 16));
+            for (int i = 0; i < n; i++) {
+                String path = in.readUTF();
+                long size = in.readLong(), modified = in.readLong(), hash = in.readLong();
+                int lutSize = in.readInt();
+                int flags = in.readByte();
+                list.add(new Entry(path, size, modified, hash, lutSize, (flags & 1) != 0, (flags & 2) != 0,
+                        in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat()));
+            }
+            return Collections.unmodifiableList(list);
+        }
+    }
+}
@@ -13,6 +13,7 @@ public class ColorPoint {
     private double position;
     private int[] rgb;     // [r, g, b], [0,255]
     private float[] lab;   // [L,a,b]
+    private int version;   // incremented on every change (see Colormap.getModificationCount)
 
     // Constructeur RGB (valeur de référence)
     public ColorPoint(double position, int[] rgb) {
@@ -38,6 +39,7 @@ public class ColorPoint {
         if (pos < 0.0 || pos > 1.0)
             throw new IllegalArgumentException("Position must be in [0,1]");
         this.position = pos;
+        version++;
     }
 
     public int[] getRgb() { return rgb.clone(); }
@@ -49,6 +51,7 @@ public class ColorPoint {
                 throw new IllegalArgumentException("RGB values must be in [0,255]");
         this.rgb = rgb.clone();
         this.lab = ColorUtils.rgb2labFloat(this.rgb);
+        version++;
     }
 
     public float[] getLab() { return lab.clone(); }
@@ -57,13 +60,18 @@ public class ColorPoint {
             throw new IllegalArgumentException("Lab array must have length 3");
         this.lab = lab.clone();
         this.rgb = ColorUtils.lab2rgb(this.lab);
+        version++;
     }
 
+    public int getVersion() { return version; }
+
     // Synchronisation manuelle si jamais on fait une modif "brute"
     public void updateLab() {
         this.lab = ColorUtils.rgb2labFloat(this.rgb);
+        version++;
     }
     public void updateRgb() {
         this.rgb = ColorUtils.lab2rgb(this.lab);
+        version++;
     }
 }
@@ -1,7 +1,9 @@
 package io.github.rocsg.fijilutmaker.model;
 
 import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
-import io.github.rocsg.fijilutmaker.utils.Interpolator;
+import io.github.rocsg.fijilutmaker.io.LUTExporter;
+import io.github.rocsg.fijilutmaker.io.LUTImporter;
+import io.github.rocsg.fijilutmaker.utils.InterpolationPlan;
 import java.util.*;
 import java.io.*;
 
@@ -16,6 +18,22 @@ public class Colormap {
     private InterpolationMode mode;
     private int lutSize;
 
+    // Modification counter, and the points/versions it was last checked against
+    private long modCount;
+    private ColorPoint[] observedPoints = new ColorPoint[0];
+    private int[] observedVersions = new int[0];
+
+    // Last generated LUT and the plan it came from, for memoization and incremental regeneration
+    private PackedLUT lastLut;
+    private InterpolationPlan lastLutPlan;
+    private long lastLutVersion = -1;
+    // Last published snapshot, and the immutable point built for each live ColorPoint (reused while unchanged)
+    private volatile ColormapSnapshot snapshot;
+    private Map<ColorPoint, SnapshotSource> snapshotSources = new IdentityHashMap<>();
+    // Analysis of lastLut
+    private LUTAnalysis analysis;
+    private PackedLUT analyzedLut;
+
     public Colormap() {
         this.points = new ArrayList<>();
         this.mode = InterpolationMode.LINEAR_RGB;
@@ -43,89 +61,181 @@ public class Colormap {
     }
 
 
+    /**
+     * The live, mutable point list, for interactive editing on the EDT only.
+     * Other threads must work on a snapshot (see snapshot() and getPublishedSnapshot()).
+     */
     public List<ColorPoint> getPoints() {
         return points; // <-- Rends la liste modifiable pour l'édition interactive
     }
 
-    public void setInterpolationMode(InterpolationMode mode) { this.mode = mode; }
+    /** Sort the live point list by position (stable), e.g. after a point was dragged past a neighbour. */
+    public void sortPoints() {
+        points.sort(Comparator.comparingDouble(ColorPoint::getPosition));
+    }
+
+    public void setInterpolationMode(InterpolationMode mode) {
+        if (mode != this.mode) modCount++;
+        this.mode = mode;
+    }
     public InterpolationMode getInterpolationMode() { return mode; }
-    public void setLutSize(int size) { this.lutSize = size; }
+    public void setLutSize(int size) {
+        if (size != this.lutSize) modCount++;
+        this.lutSize = size;
+    }
     public int getLutSize() { return lutSize; }
 
-    public void setPoints(List<ColorPoint> pts) { this.points = new ArrayList<>(pts); }
+    public void setPoints(List<ColorPoint> pts) { this.points = new ArrayList<>(pts); modCount++; }
 
-    public void addPoint(ColorPoint pt) { points.add(pt); }
+    public void addPoint(ColorPoint pt) { points.add(pt); modCount++; }
     public void removePoint(int idx) {
         if (points.size() > 2 && idx >= 0 && idx < points.size()) {
             points.remove(idx);
+            modCount++;
+        }
+    }
+
+    /**
+     * Modification counter: increases on every change of points, mode or LUT size.
+     * Changes made through the live list of getPoints() or through ColorPoint setters are
+     * detected here, by comparing the points and their versions with the last observed ones.
+     */
+    public long getModificationCount() {
+        int n = points.size();
+        boolean changed = n != observedPoints.length;
+        for (int i = 0; i < n && !changed; i++) {
+            ColorPoint p = points.get(i);
+            changed = p != observedPoints[i] || p.getVersion() != observedVersions[i];
+        }
+        if (changed) {
+            observedPoints = points.toArray(new ColorPoint[0]);
+            observedVersions = new int[n];
+            for (int i = 0; i < n; i++) observedVersions[i] = observedPoints[i].getVersion();
+            modCount++;
         }
+        return modCount;
     }
     /**
-     * Generate the LUT as int[256][3] (RGB 0-255).
+     * Generate the LUT as int[lutSize][3] (RGB 0-255).
+     * The points are compiled once into an InterpolationPlan, then all entries are evaluated in one sweep.
+     * Returns a new mutable array on each call; prefer generatePackedLUT(), which is cached.
      */
     public int[][] generateLUT() {
-        int[][] lut = new int[lutSize][3];
-        List<ColorPoint> pts = getSortedPoints();
-        for (int i = 0; i < lutSize; i++) {
-            double t = (double)i / (lutSize-1);
-            int[] rgb;
-            switch (mode) {
-                case LINEAR_RGB:   rgb = Interpolator.linearRGB(pts, t); break;
-                case SPLINE_RGB:   rgb = Interpolator.splineRGB(pts, t); break;
-                case LINEAR_LAB:   rgb = Interpolator.linearLab(pts, t); break;
-                case SPLINE_LAB:   rgb = Interpolator.splineLab(pts, t); break;
-                case LINEAR_LCH:   rgb = Interpolator.linearLch(pts, t); break;
-                case SPLINE_LCH:   rgb = Interpolator.splineLch(pts, t); break;
-                default:           rgb = Interpolator.linearRGB(pts, t); break;
-            }
-            lut[i] = rgb;
+        return generatePackedLUT().toRGBArray();
+    }
+
+    /**
+     * Generate the LUT as a PackedLUT of lutSize entries (one packed 0xRRGGBB int per entry).
+     * The result is immutable and cached: calls without modification in between return the same instance.
+     */
+    public PackedLUT generatePackedLUT() {
+        long version = getModificationCount();
+        if (lastLut != null && version == lastLutVersion) return lastLut;
+        // Only recompute the entries that the edits since the previous call can affect
+        InterpolationPlan plan = compilePlan();
+        lastLut = PackedLUT.regenerate(lastLut, lastLutPlan, plan, lutSize);
+        lastLutPlan = plan;
+        lastLutVersion = version;
+        return lastLut;
+    }
+
+    /**
+     * Perceptual analysis (Lab, L* profile, step ΔE, monotonicity) of the current LUT, cached until the next modification.
+     * Analyzes the LUT of generatePackedLUT(), so the LUT is not computed twice.
+     */
+    public LUTAnalysis getAnalysis() {
+        PackedLUT lut = generatePackedLUT();
+        if (lut != analyzedLut) {
+            analysis = LUTAnalysis.of(lut);
+            analyzedLut = lut;
         }
-        return lut;
+        return analysis;
     }
 
-    private List<ColorPoint> getSortedPoints() {
-        List<ColorPoint> out = new ArrayList<>(points);
-        out.sort(Comparator.comparingDouble(ColorPoint::getPosition));
-        return out;
+    /**
+     * Color of the colormap at position t in [0,1], as {r, g, b} (not quantized to a LUT entry).
+     * Uses the cached compiled plan: O(log n) in the number of points.
+     */
+    public int[] evaluate(double t) {
+        return compilePlan().evaluate(t);
+    }
+
+    /**
+     * Color at position t in [0,1] as packed RGB (0xRRGGBB).
+     */
+    public int evaluatePacked(double t) {
+        return compilePlan().evaluatePacked(t);
+    }
+
+    /**
+     * Colors at positions ts (any order, any count) as packed RGB, written to packedOut.
+     */
+    public void evaluate(double[] ts, int[] packedOut) {
+        compilePlan().evaluate(ts, packedOut, ts.length);
+    }
+
+    /**
+     * Compile the current points and interpolation mode into a reusable (immutable) InterpolationPlan.
+     * The plan belongs to the current snapshot, so it is cached until the next modification.
+     */
+    public InterpolationPlan compilePlan() {
+        return snapshot().compilePlan();
+    }
+
+    /**
+     * Immutable snapshot of the current state, published for other threads (see getPublishedSnapshot()).
+     * Must be called on the thread editing the model: it is where changes made through the live list or
+     * ColorPoint setters are detected. A new snapshot is built only after a modification, and only the
+     * points that changed get their Lab/LCH recomputed.
+     */
+    public ColormapSnapshot snapshot() {
+        long version = getModificationCount();
+        ColormapSnapshot s = snapshot;
+        if (s != null && s.getVersion() == version) return s;
+        Map<ColorPoint, SnapshotSource> sources = new IdentityHashMap<>();
+        List<ColormapSnapshot.Point> pts = new ArrayList<>(points.size());
+        for (ColorPoint p : points) {
+            SnapshotSource src = snapshotSources.get(p);
+            if (src == null || src.version != p.getVersion()) src = new SnapshotSource(p);
+            sources.put(p, src);
+            pts.add(src.point);
+        }
+        snapshotSources = sources;
+        s = new ColormapSnapshot(pts, mode, lutSize, version);
+        snapshot = s; // volatile write: the whole state is published at once
+        return s;
+    }
+
+    /**
+     * Last snapshot published by snapshot(), or null if none yet. Safe to call from any thread.
+     */
+    public ColormapSnapshot getPublishedSnapshot() {
+        return snapshot;
+    }
+
+    private static final class SnapshotSource {
+        final int version;
+        final ColormapSnapshot.Point point;
+
+        SnapshotSource(ColorPoint p) {
+            version = p.getVersion();
+            point = ColormapSnapshot.Point.of(p);
+        }
     }
 
     /**
      * Export LUT to ImageJ .lut binary file (R then G then B, 256 bytes each).
+     * LUTs of another size are resampled to 256 entries. See LUTExporter for other formats.
      */
     public void exportAsImageJLUT(File file) throws IOException {
-        int[][] lut = generateLUT();
-        if (lut.length != 256) throw new IOException("ImageJ LUT requires 256 entries");
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            // Write all reds
-            for (int i = 0; i < 256; i++) fos.write(lut[i][0]);
-            // Write all greens
-            for (int i = 0; i < 256; i++) fos.write(lut[i][1]);
-            // Write all blues
-            for (int i = 0; i < 256; i++) fos.write(lut[i][2]);
-        }
+        LUTExporter.exportToImageJ(generatePackedLUT(), file);
     }
 
     /**
-     * Utility: import LUT from ImageJ .lut binary file (R G B blocks of 256 bytes).
-     * Sets 3 points: first, middle, last (simple use case).
+     * Import LUT from ImageJ .lut binary file (768 bytes, or with a 32-byte header).
+     * The control points regenerate the file exactly at its size; see LUTImporter for a ΔE tolerance.
      */
     public static Colormap importFromImageJLUT(File file) throws IOException {
-        byte[] bytes = new byte[256*3];
-        try (FileInputStream fis = new FileInputStream(file)) {
-            if (fis.read(bytes) != 768)
-                throw new IOException("Not enough bytes for ImageJ LUT");
-        }
-        Colormap cmap = new Colormap();
-        int[][] lut = new int[256][3];
-        for (int i = 0; i < 256; i++) {
-            lut[i][0] = bytes[i] & 0xFF;         // Red
-            lut[i][1] = bytes[256 + i] & 0xFF;   // Green
-            lut[i][2] = bytes[512 + i] & 0xFF;   // Blue
-        }
-        // Only set first, middle, last as keypoints for edition
-        cmap.addPoint(new ColorPoint(0.0, lut[0]));
-        cmap.addPoint(new ColorPoint(0.5, lut[128]));
-        cmap.addPoint(new ColorPoint(1.0, lut[255]));
-        return cmap;
+        return LUTImporter.importFromImageJ(file);
     }
 }
@@ -0,0 +1,97 @@
+package io.github.rocsg.fijilutmaker.model;
+
+import io.github.rocsg.fijilutmaker.color.ColorUtils;
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+import io.github.rocsg.fijilutmaker.utils.InterpolationPlan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable state of a Colormap: its points (sorted by position, with precomputed Lab and LCH),
+ * interpolation mode and LUT size. Snapshots are published by Colormap.snapshot() and can be read
+ * from any thread without locking: worker threads compile plans, generate LUTs and validate them
+ * from a snapshot while the EDT keeps editing the live model.
+ * The compiled plan and the generated LUT are computed lazily, at most once per snapshot
+ * (two threads may race to compute them, with identical results).
+ */
+public final class ColormapSnapshot {
+
+    /** Immutable control point. */
+    public static final class Point {
+        private final double position;
+        private final int rgb;         // packed 0xRRGGBB
+        private final double[] lab;    // L, a, b
+        private final double[] lch;    // L, C, H (degrees)
+
+        public Point(double position, int r, int g, int b) {
+            this.position = position;
+            this.rgb = PackedLUT.pack(r, g, b);
+            this.lab = ColorUtils.rgbToLab(r, g, b);
+            this.lch = ColorUtils.rgbToLch(r, g, b);
+        }
+
+        static Point of(ColorPoint p) {
+            int[] rgb = p.getRgb();
+            return new Point(p.getPosition(), rgb[0], rgb[1], rgb[2]);
+        }
+
+        public double getPosition() { return position; }
+        /** Packed 0xRRGGBB. */
+        public int getPackedRgb() { return rgb; }
+        public int red()   { return (rgb >> 16) & 0xFF; }
+        public int green() { return (rgb >> 8) & 0xFF; }
+        public int blue()  { return rgb & 0xFF; }
+        /** Channel c (0: L, 1: a, 2: b) of the Lab color. */
+        public double lab(int c) { return lab[c]; }
+        /** Channel c (0: L, 1: C, 2: H in degrees) of the LCH color. */
+        public double lch(int c) { return lch[c]; }
+
+        /** Mutable copy, for the editing side. */
+        public ColorPoint toColorPoint() {
+            return new ColorPoint(position, new int[] {red(), green(), blue()});
+        }
+    }
+
+    private final List<Point> points;
+    private final InterpolationMode mode;
+    private final int lutSize;
+    private final long version;
+    private volatile InterpolationPlan plan;
+    private volatile PackedLUT lut;
+
+    /**
+     * Snapshot of the given points (sorted here by position, stable for equal positions).
+     */
+    public ColormapSnapshot(List<Point> points, InterpolationMode mode, int lutSize, long version) {
+        List<Point> sorted = new ArrayList<>(points);
+        sorted.sort(Comparator.comparingDouble(Point::getPosition));
+        this.points = Collections.unmodifiableList(sorted);
+        this.mode = mode;
+        this.lutSize = lutSize;
+        this.version = version;
+    }
+
+    /** The points, sorted by position (unmodifiable). */
+    public List<Point> getPoints() { return points; }
+    public InterpolationMode getInterpolationMode() { return mode; }
+    public int getLutSize() { return lutSize; }
+    /** Colormap modification count this snapshot was taken at. */
+    public long getVersion() { return version; }
+
+    /** Compiled interpolation plan of this snapshot. */
+    public InterpolationPlan compilePlan() {
+        InterpolationPlan p = plan;
+        if (p == null) plan = p = new InterpolationPlan(this);
+        return p;
+    }
+
+    /** LUT of getLutSize() entries. */
+    public PackedLUT generatePackedLUT() {
+        PackedLUT l = lut;
+        if (l == null) lut = l = PackedLUT.generate(compilePlan(), lutSize);
+        return l;
+    }
+}
@@ -1,27 +1,72 @@
 package io.github.rocsg.fijilutmaker.model;
 
+import java.util.List;
+
 /**
  * Methods to check perceptual/quality aspects of a colormap (monotonicity, deltas, colorblind safety).
+ * Luminance is CIE L* (0-100); deltas are CIE76 ΔE between consecutive LUT entries.
+ * The luminance and delta metrics come from a single LUTAnalysis pass (cached per LUT for a Colormap).
  */
 public class ColormapValidator {
 
+    /** Minimum ΔE between simulated colors of distant entries for isColorblindSafe. */
+    public static final double CVD_MIN_DELTA_E = 3.0;
+    /** Minimum index distance, as a fraction of the LUT size, of the pairs checked by isColorblindSafe. */
+    public static final double CVD_MIN_INDEX_GAP = 1.0 / 8;
+
     public static boolean isMonotoneLuminance(Colormap c) {
-        // TODO: Compute if luminance strictly increases/decreases along LUT.
-        return true;
+        return c.getAnalysis().isMonotoneLuminance();
     }
 
     public static double[] luminanceProfile(Colormap c) {
-        // TODO: Return luminance array for entire LUT.
-        return new double[0];
+        return c.getAnalysis().luminanceProfile(null);
     }
 
     public static double getPerceptualDelta(Colormap c) {
-        // TODO: Compute average/max delta between steps (in Lab).
-        return 0.0;
+        return c.getAnalysis().getMeanDeltaE76();
     }
 
     public static boolean isColorblindSafe(Colormap c) {
-        // TODO: Analyze LUT for pairs of colors that may be confused.
-        return true;
+        return isColorblindSafe(c.generatePackedLUT());
+    }
+
+    /**
+     * True if L* never decreases, or never increases, along the LUT (and is not constant).
+     * To get several metrics of the same LUT, analyze it once with LUTAnalysis instead.
+     */
+    public static boolean isMonotoneLuminance(PackedLUT lut) {
+        return LUTAnalysis.of(lut).isMonotoneLuminance();
+    }
+
+    /** L* of every LUT entry. */
+    public static double[] luminanceProfile(PackedLUT lut) {
+        return LUTAnalysis.of(lut).luminanceProfile(null);
+    }
+
+    /** Mean ΔE76 between consecutive entries. */
+    public static double getPerceptualDelta(PackedLUT lut) {
+        return LUTAnalysis.of(lut).getMeanDeltaE76();
+    }
+
+    /**
+     * Coefficient of variation (standard deviation / mean) of the ΔE76 steps: 0 for a perceptually uniform LUT.
+     */
+    public static double getPerceptualUniformity(PackedLUT lut) {
+        return LUTAnalysis.of(lut).getUniformity();
+    }
+
+    /**
+     * True if, under protanope, deuteranope and tritanope simulation, entries at least 1/8 of the LUT apart
+     * stay at least CVD_MIN_DELTA_E apart.
+     */
+    public static boolean isColorblindSafe(PackedLUT lut) {
+        return new ConfusionDetector(CVD_MIN_DELTA_E, CVD_MIN_INDEX_GAP, 1).find(lut).isEmpty();
+    }
+
+    /**
+     * The (at most maxPairs) worst pairs breaking isColorblindSafe, worst first.
+     */
+    public static List<ConfusionDetector.Pair> confusablePairs(PackedLUT lut, int maxPairs) {
+        return new ConfusionDetector(CVD_MIN_DELTA_E, CVD_MIN_INDEX_GAP, maxPairs).find(lut);
     }
 }
@@ -0,0 +1,160 @@
+package io.github.rocsg.fijilutmaker.model;
+
+import io.github.rocsg.fijilutmaker.color.ColorUtils;
+import io.github.rocsg.fijilutmaker.color.ColorBlindSimulator;
+import io.github.rocsg.fijilutmaker.color.ColorBlindSimulator.Deficiency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Finds pairs of LUT entries that are far apart in the LUT but look alike to a dichromat (protan, deutan or tritan,
+ * simulated with ColorBlindSimulator at full severity):
+ * index distance at least minIndexGap * size() and ΔE76 below minDeltaE between the simulated colors.
+ * <p>
+ * The simulated colors are bucketed in a uniform Lab grid whose cell side is minDeltaE, so a confusable pair
+ * is always in the same or in adjacent cells: only the 27 neighbouring cells of each color are compared.
+ * Entries with the same simulated color are merged first (keeping their lowest and highest index), which
+ * bounds the work by the number of distinct colors. Cells are found by binary search in the sorted cell keys,
+ * so a LUT of n entries costs O(n log n) per deficiency instead of O(n²). Deficiencies run in parallel.
+ */
+public class ConfusionDetector {
+
+    /** Two confusable entries (i < j) and the ΔE76 between their simulated colors. */
+    public static final class Pair {
+        public final int i, j;
+        public final Deficiency deficiency;
+        public final double deltaE;
+
+        Pair(int i, int j, Deficiency deficiency, double deltaE) {
+            this.i = i; this.j = j; this.deficiency = deficiency; this.deltaE = deltaE;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: entries %d and %d, ΔE %.2f", deficiency, i, j, deltaE);
+        }
+    }
+
+    // Worst first: smallest ΔE, then widest index gap
+    private static final Comparator<Pair> WORST_FIRST =
+            Comparator.comparingDouble((Pair p) -> p.deltaE).thenComparing(p -> -(p.j - p.i));
+
+    private final double minDeltaE;
+    private final double minIndexGap;
+    private final int maxPairs;
+
+    /**
+     * @param minDeltaE   simulated colors closer than this (ΔE76) are confusable (at least 0.05)
+     * @param minIndexGap minimum index distance of a reported pair, as a fraction of the LUT size
+     * @param maxPairs    number of worst pairs to keep
+     */
+    public ConfusionDetector(double minDeltaE, double minIndexGap, int maxPairs) {
+        if (minDeltaE < 0.05 || maxPairs < 1) throw new IllegalArgumentException("minDeltaE must be >= 0.05 and maxPairs >= 1");
+        this.minDeltaE = minDeltaE;
+        this.minIndexGap = minIndexGap;
+        this.maxPairs = maxPairs;
+    }
+
+    /**
+     * The worst confusable pairs over all deficiencies, worst (smallest ΔE) first; empty if the LUT is safe.
+     */
+    public List<Pair> find(PackedLUT lut) {
+        List<Pair> all = Arrays.stream(Deficiency.values()).parallel()
+                .flatMap(d -> find(lut, d).stream())
+                .sorted(WORST_FIRST)
+                .collect(Collectors.toList());
+        return all.size() > maxPairs ? new ArrayList<>(all.subList(0, maxPairs)) : all;
+    }
+
+    /**
+     * The worst confusable pairs for one deficiency, worst first.
+     */
+    public List<Pair> find(PackedLUT lut, Deficiency deficiency) {
+        int n = lut.size();
+        int gap = Math.max(1, (int) Math.ceil(minIndexGap * n));
+        if (gap >= n) return Collections.emptyList();
+
+        // Distinct simulated colors, with the lowest and highest entry showing each
+        int[] sim = lut.toPackedArray();
+        ColorBlindSimulator.dichromat(deficiency).simulate(sim, sim, n);
+        long[] keyed = new long[n];
+        for (int i = 0; i < n; i++) keyed[i] = ((long) sim[i] << 32) | i;
+        Arrays.sort(keyed);
+        int[] colors = new int[n], lo = new int[n], hi = new int[n];
+        int m = 0;
+        for (int k = 0; k < n; k++) {
+            int rgb = (int) (keyed[k] >>> 32), idx = (int) keyed[k];
+            if (m > 0 && colors[m - 1] == rgb) {
+                hi[m - 1] = idx; // sorted by index within a color
+            } else {
+                colors[m] = rgb; lo[m] = idx; hi[m] = idx; m++;
+            }
+        }
+
+        if (m > 0xFFFFF) throw new IllegalArgumentException("Too many distinct colors: " + m);
+
+        PriorityQueue<Pair> worst = new PriorityQueue<>(WORST_FIRST.reversed());
+        for (int u = 0; u < m; u++)
+            if (hi[u] - lo[u] >= gap) offer(worst, new Pair(lo[u], hi[u], deficiency, 0));
+
+        // Grid cells of the distinct colors, sorted by cell key
+        float[] lab = new float[3 * m];
+        ColorUtils.rgbToLab(colors, lab, m);
+        long[] cells = new long[m];
+        for (int u = 0; u < m; u++) cells[u] = (cellKey(cell(lab[3 * u]), cell(lab[3 * u + 1]), cell(lab[3 * u + 2])) << 20) | u;
+        Arrays.sort(cells);
+
+        for (int u = 0; u < m; u++) {
+            int cl = cell(lab[3 * u]), ca = cell(lab[3 * u + 1]), cb = cell(lab[3 * u + 2]);
+            for (int dl = -1; dl <= 1; dl++)
+                for (int da = -1; da <= 1; da++)
+                    for (int db = -1; db <= 1; db++) {
+                        long key = cellKey(cl + dl, ca + da, cb + db);
+                        for (int k = firstInCell(cells, key); k < m && (cells[k] >> 20) == key; k++) {
+                            int v = (int) (cells[k] & 0xFFFFF);
+                            if (v <= u) continue; // each pair once
+                            // Widest separation between occurrences of the two colors: the pair reported
+                            boolean uFirst = hi[v] - lo[u] >= hi[u] - lo[v];
+                            int a = uFirst ? lo[u] : lo[v], b = uFirst ? hi[v] : hi[u];
+                            if (b - a < gap) continue;
+                            double d = ColorUtils.deltaE76(lab[3 * u], lab[3 * u + 1], lab[3 * u + 2],
+                                                           lab[3 * v], lab[3 * v + 1], lab[3 * v + 2]);
+                            if (d < minDeltaE) offer(worst, new Pair(a, b, deficiency, d));
+                        }
+                    }
+        }
+        List<Pair> out = new ArrayList<>(worst);
+        out.sort(WORST_FIRST);
+        return out;
+    }
+
+    private void offer(PriorityQueue<Pair> worst, Pair p) {
+        worst.add(p);
+        if (worst.size() > maxPairs) worst.poll();
+    }
+
+    private int cell(float v) {
+        return (int) Math.floor(v / minDeltaE);
+    }
+
+    // 14 bits per axis (cells of at least ~0.05 ΔE over L in [0,100], a/b in [-128,128]), 20 bits left for the color index
+    private static long cellKey(int l, int a, int b) {
+        return ((long) (l + 8192) << 28) | ((long) (a + 8192) << 14) | (b + 8192);
+    }
+
+    private static int firstInCell(long[] cells, long key) {
+        int lo = 0, hi = cells.length;
+        long target = key << 20;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cells[mid] < target) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
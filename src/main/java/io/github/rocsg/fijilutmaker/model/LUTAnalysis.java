@@ -0,0 +1,119 @@
+package io.github.rocsg.fijilutmaker.model;
+
+import io.github.rocsg.fijilutmaker.color.ColorUtils;
+
+/**
+ * Perceptual analysis of a LUT: Lab of every entry, the L* profile, statistics of the step ΔE between
+ * consecutive entries (CIE76 and CIEDE2000) and breaks of luminance monotonicity.
+ * The LUT is converted to Lab once (batch conversion), then all metrics are accumulated in a single loop.
+ * An instance is reusable: analyze() overwrites the previous result and only reallocates its buffers
+ * when given a larger LUT, so a thread analyzing many LUTs allocates nothing after the first ones.
+ * Not thread-safe; ColormapValidator and Colormap.getAnalysis() are the usual entry points.
+ */
+public final class LUTAnalysis {
+
+    private int size;
+    private int[] packed = new int[0];
+    private float[] lab = new float[0];
+
+    private double minDE76, meanDE76, maxDE76, varDE76;
+    private double minDE2000, meanDE2000, maxDE2000, varDE2000;
+    private int direction;        // +1: L* increases from first to last entry, -1: decreases, 0: same L*
+    private int breaks, firstBreak;
+
+    public static LUTAnalysis of(PackedLUT lut) {
+        return new LUTAnalysis().analyze(lut);
+    }
+
+    /**
+     * Analyze lut, replacing the previous result. Returns this.
+     */
+    public LUTAnalysis analyze(PackedLUT lut) {
+        int n = lut.size();
+        if (packed.length < n) {
+            packed = new int[n];
+            lab = new float[3 * n];
+        }
+        size = n;
+        lut.copyTo(packed);
+        ColorUtils.rgbToLab(packed, lab, n);
+
+        float l0 = lab[0], lLast = lab[3 * (n - 1)];
+        direction = (lLast > l0) ? 1 : (lLast < l0) ? -1 : 0;
+        breaks = 0;
+        firstBreak = -1;
+        double sum76 = 0, sq76 = 0, sum2000 = 0, sq2000 = 0;
+        minDE76 = minDE2000 = Double.POSITIVE_INFINITY;
+        maxDE76 = maxDE2000 = 0;
+        for (int i = 1, o = 3; i < n; i++, o += 3) {
+            double pL = lab[o - 3], pa = lab[o - 2], pb = lab[o - 1];
+            double cL = lab[o], ca = lab[o + 1], cb = lab[o + 2];
+            double dL = cL - pL;
+            // Step against the overall direction (any L* change if first and last entries have the same L*)
+            if (direction == 0 ? dL != 0 : dL * direction < 0) {
+                if (breaks++ == 0) firstBreak = i;
+            }
+            double d76 = ColorUtils.deltaE76(pL, pa, pb, cL, ca, cb);
+            double d2000 = ColorUtils.deltaE2000(pL, pa, pb, cL, ca, cb);
+            sum76 += d76; sq76 += d76 * d76;
+            sum2000 += d2000; sq2000 += d2000 * d2000;
+            if (d76 < minDE76) minDE76 = d76;
+            if (d76 > maxDE76) maxDE76 = d76;
+            if (d2000 < minDE2000) minDE2000 = d2000;
+            if (d2000 > maxDE2000) maxDE2000 = d2000;
+        }
+        int steps = n - 1;
+        meanDE76 = sum76 / steps;
+        varDE76 = Math.max(0, sq76 / steps - meanDE76 * meanDE76);
+        meanDE2000 = sum2000 / steps;
+        varDE2000 = Math.max(0, sq2000 / steps - meanDE2000 * meanDE2000);
+        return this;
+    }
+
+    /** Number of entries of the analyzed LUT. */
+    public int size() { return size; }
+
+    /** CIE L* (0-100) of entry i. */
+    public double getLightness(int i) { return lab[3 * i]; }
+
+    /** Lab of entry i, written to out[0..2]. */
+    public void getLab(int i, double[] out) {
+        out[0] = lab[3 * i]; out[1] = lab[3 * i + 1]; out[2] = lab[3 * i + 2];
+    }
+
+    /** L* of every entry, written to out (length >= size()); a new array if out is null. */
+    public double[] luminanceProfile(double[] out) {
+        if (out == null) out = new double[size];
+        for (int i = 0; i < size; i++) out[i] = lab[3 * i];
+        return out;
+    }
+
+    /** +1 if L* increases from the first to the last entry, -1 if it decreases, 0 if both have the same L*. */
+    public int getDirection() { return direction; }
+
+    /** Number of steps going against the overall L* direction. */
+    public int getMonotonicityBreaks() { return breaks; }
+
+    /** Index of the entry ending the first step against the L* direction, or -1. */
+    public int getFirstBreak() { return firstBreak; }
+
+    /** True if L* never goes against its overall direction and is not constant. */
+    public boolean isMonotoneLuminance() { return direction != 0 && breaks == 0; }
+
+    public double getMinDeltaE76() { return minDE76; }
+    public double getMeanDeltaE76() { return meanDE76; }
+    public double getMaxDeltaE76() { return maxDE76; }
+    public double getVarianceDeltaE76() { return varDE76; }
+
+    public double getMinDeltaE2000() { return minDE2000; }
+    public double getMeanDeltaE2000() { return meanDE2000; }
+    public double getMaxDeltaE2000() { return maxDE2000; }
+    public double getVarianceDeltaE2000() { return varDE2000; }
+
+    /**
+     * Coefficient of variation (standard deviation / mean) of the ΔE76 steps: 0 for a perceptually uniform LUT.
+     */
+    public double getUniformity() {
+        return meanDE76 == 0 ? 0 : Math.sqrt(varDE76) / meanDE76;
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.rocsg.fijilutmaker.model;
+
+import io.github.rocsg.fijilutmaker.utils.InterpolationPlan;
+import ij.process.LUT;
+import java.awt.image.IndexColorModel;
+
+/**
+ * Immutable lookup table stored as one packed int per entry (0xRRGGBB).
+ * Compact alternative to int[lutSize][3]: a single array, no per-entry objects,
+ * and direct conversion to the byte planes used by ImageJ's LUT / IndexColorModel.
+ */
+public final class PackedLUT {
+
+    private final int[] rgb; // 0xRRGGBB, alpha bits always 0
+
+    /**
+     * Build a LUT from packed 0xRRGGBB values (the array is copied, alpha bits are dropped).
+     */
+    public PackedLUT(int[] packedRgb) {
+        this(packedRgb.clone(), true);
+    }
+
+    // Takes ownership of the array (caller must not modify it afterwards)
+    PackedLUT(int[] packedRgb, boolean owned) {
+        if (packedRgb.length < 2)
+            throw new IllegalArgumentException("LUT must have at least 2 entries");
+        for (int i = 0; i < packedRgb.length; i++) packedRgb[i] &= 0xFFFFFF;
+        this.rgb = packedRgb;
+    }
+
+    /**
+     * Evaluate a compiled plan at size evenly spaced positions on [0,1].
+     * Safe to call from any thread: the plan does not reference the Colormap.
+     */
+    public static PackedLUT generate(InterpolationPlan plan, int size) {
+        int[] packed = new int[size];
+        plan.fill(packed);
+        return new PackedLUT(packed, true);
+    }
+
+    /**
+     * Update previous (generated from previousPlan) to plan, recomputing only the entries in
+     * plan.changedRange(previousPlan, size); previous is returned as is when nothing changed.
+     * Callers that need the changed range compute it from the plans they hold.
+     */
+    public static PackedLUT regenerate(PackedLUT previous, InterpolationPlan previousPlan,
+                                       InterpolationPlan plan, int size) {
+        int[] dirty = (previous == null || previous.size() != size)
+                ? new int[] {0, size} : plan.changedRange(previousPlan, size);
+        if (dirty[0] >= dirty[1]) return previous;
+        int[] packed = (dirty[0] == 0 && dirty[1] == size) ? new int[size] : previous.rgb.clone();
+        plan.fill(packed, dirty[0], dirty[1]);
+        return new PackedLUT(packed, true);
+    }
+
+    /**
+     * Build a LUT from int[n][3] RGB values in [0,255].
+     */
+    public static PackedLUT fromRGBArray(int[][] lut) {
+        int[] packed = new int[lut.length];
+        for (int i = 0; i < lut.length; i++) packed[i] = pack(lut[i][0], lut[i][1], lut[i][2]);
+        return new PackedLUT(packed, true);
+    }
+
+    /**
+     * Build a LUT from three planes of unsigned bytes (R, G, B).
+     */
+    public static PackedLUT fromBytePlanes(byte[] reds, byte[] greens, byte[] blues) {
+        int[] packed = new int[reds.length];
+        for (int i = 0; i < packed.length; i++)
+            packed[i] = pack(reds[i] & 0xFF, greens[i] & 0xFF, blues[i] & 0xFF);
+        return new PackedLUT(packed, true);
+    }
+
+    public static int pack(int r, int g, int b) {
+        return (r << 16) | (g << 8) | b;
+    }
+
+    public int size() { return rgb.length; }
+
+    /**
+     * LUT of another size, entry i taking entry round(i * (size() - 1) / (newSize - 1)) of this one
+     * (nearest sample, as LUTApplier does for 8-bit images). Returns this LUT if the size is unchanged.
+     */
+    public PackedLUT resample(int newSize) {
+        if (newSize == rgb.length) return this;
+        if (newSize < 2) throw new IllegalArgumentException("LUT must have at least 2 entries");
+        int[] packed = new int[newSize];
+        for (int i = 0; i < newSize; i++)
+            packed[i] = rgb[(int) Math.round(i * (double) (rgb.length - 1) / (newSize - 1))];
+        return new PackedLUT(packed, true);
+    }
+
+    /** Packed 0xRRGGBB value of entry i. */
+    public int get(int i) { return rgb[i]; }
+
+    public int red(int i)   { return (rgb[i] >> 16) & 0xFF; }
+    public int green(int i) { return (rgb[i] >> 8) & 0xFF; }
+    public int blue(int i)  { return rgb[i] & 0xFF; }
+
+    /** Entry i as a new {r, g, b} array. */
+    public int[] getRgb(int i) {
+        int v = rgb[i];
+        return new int[] {(v >> 16) & 0xFF, (v >> 8) & 0xFF, v & 0xFF};
+    }
+
+    /** Copy of the packed values. */
+    public int[] toPackedArray() { return rgb.clone(); }
+
+    /** Copy the packed values into dst, starting at index 0. */
+    public void copyTo(int[] dst) { System.arraycopy(rgb, 0, dst, 0, rgb.length); }
+
+    /** Returns {reds, greens, blues}, one unsigned byte per entry. */
+    public byte[][] toBytePlanes() {
+        byte[][] planes = new byte[3][rgb.length];
+        for (int i = 0; i < rgb.length; i++) {
+            int v = rgb[i];
+            planes[0][i] = (byte) (v >> 16);
+            planes[1][i] = (byte) (v >> 8);
+            planes[2][i] = (byte) v;
+        }
+        return planes;
+    }
+
+    /** Legacy int[n][3] view, for code that still expects it. */
+    public int[][] toRGBArray() {
+        int[][] out = new int[rgb.length][];
+        for (int i = 0; i < rgb.length; i++) out[i] = getRgb(i);
+        return out;
+    }
+
+    /** 8-bit IndexColorModel (at most 256 entries). */
+    public IndexColorModel toIndexColorModel() {
+        if (rgb.length > 256)
+            throw new IllegalStateException("IndexColorModel requires at most 256 entries");
+        byte[][] p = toBytePlanes();
+        return new IndexColorModel(8, rgb.length, p[0], p[1], p[2]);
+    }
+
+    /** ImageJ LUT (exactly 256 entries). */
+    public LUT toImageJLUT() {
+        if (rgb.length != 256)
+            throw new IllegalStateException("ImageJ LUT requires 256 entries");
+        byte[][] p = toBytePlanes();
+        return new LUT(p[0], p[1], p[2]);
+    }
+}
@@ -0,0 +1,104 @@
+package io.github.rocsg.fijilutmaker.render;
+
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import ij.ImagePlus;
+
+/**
+ * Maps raw sample values (8/12/16-bit integers or 32-bit floats) to LUT colors without going through 8 bits.
+ * A value v is placed at t = (v - min) / (max - min), clamped to [0,1], raised to gamma, and mapped to
+ * LUT entry round(t^gamma * (n-1)). NaN maps to entry 0.
+ * Integer data is mapped through a table with one packed color per possible value (see {@link #integerTable}),
+ * so a 16-bit image with the window [0, 65535] and a 65536-entry LUT is indexed directly.
+ */
+public final class IntensityMapping {
+
+    /** Resolution of the t -> entry table used for floats when gamma != 1. */
+    static final int GAMMA_STEPS = 65536;
+
+    private final int[] lut;   // packed 0xRRGGBB
+    private final double min, max, gamma;
+    private final double scale; // 1 / (max - min), 0 if max == min
+    private final int[] gammaIndex; // entry for t = k / (GAMMA_STEPS-1), null if gamma == 1
+
+    public IntensityMapping(PackedLUT lut, double min, double max, double gamma) {
+        if (!(max >= min)) throw new IllegalArgumentException("max must be >= min");
+        if (!(gamma > 0)) throw new IllegalArgumentException("gamma must be > 0");
+        this.lut = lut.toPackedArray();
+        this.min = min;
+        this.max = max;
+        this.gamma = gamma;
+        this.scale = (max > min) ? 1.0 / (max - min) : 0;
+        if (gamma == 1) {
+            gammaIndex = null;
+        } else {
+            gammaIndex = new int[GAMMA_STEPS];
+            for (int k = 0; k < GAMMA_STEPS; k++) gammaIndex[k] = entry((double) k / (GAMMA_STEPS - 1));
+        }
+    }
+
+    /** Linear window [0, 2^bits - 1], e.g. 12 for 12-bit camera data stored in 16-bit images. */
+    public static IntensityMapping forBitDepth(PackedLUT lut, int bits) {
+        return new IntensityMapping(lut, 0, (1 << bits) - 1, 1);
+    }
+
+    /** Linear window on the current display range of imp (what ImageJ shows with a LUT attached). */
+    public static IntensityMapping forImage(PackedLUT lut, ImagePlus imp) {
+        return new IntensityMapping(lut, imp.getDisplayRangeMin(), imp.getDisplayRangeMax(), 1);
+    }
+
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+    public double getGamma() { return gamma; }
+    public int getLutSize() { return lut.length; }
+
+    /** LUT entry for value v. */
+    public int index(double v) {
+        double t = (max > min) ? (v - min) / (max - min) : (v >= max ? 1 : 0);
+        if (!(t > 0)) return 0; // also NaN
+        if (t >= 1) return lut.length - 1;
+        return entry(t);
+    }
+
+    /** Packed color for value v. */
+    public int map(double v) {
+        return lut[index(v)];
+    }
+
+    /**
+     * Packed color of every integer value 0..levels-1 (256 for 8-bit, 65536 for 16-bit data).
+     */
+    public int[] integerTable(int levels) {
+        int[] table = new int[levels];
+        for (int v = 0; v < levels; v++) table[v] = map(v);
+        return table;
+    }
+
+    /**
+     * Map len float samples src[srcOff..] to packed colors dst[dstOff..].
+     * With gamma != 1 the power is read from a table of GAMMA_STEPS steps over [0,1].
+     */
+    public void map(float[] src, int srcOff, int[] dst, int dstOff, int len) {
+        int last = lut.length - 1;
+        if (max <= min) {
+            for (int i = 0; i < len; i++) dst[dstOff + i] = lut[src[srcOff + i] >= max ? last : 0];
+            return;
+        }
+        double k = (gammaIndex == null) ? last : GAMMA_STEPS - 1;
+        for (int i = 0; i < len; i++) {
+            double t = (src[srcOff + i] - min) * scale;
+            int e;
+            if (!(t > 0)) e = 0;
+            else if (t >= 1) e = last;
+            else {
+                e = (int) Math.round(t * k);
+                if (gammaIndex != null) e = gammaIndex[e];
+            }
+            dst[dstOff + i] = lut[e];
+        }
+    }
+
+    private int entry(double t) {
+        double g = (gamma == 1) ? t : Math.pow(t, gamma);
+        return (int) Math.round(g * (lut.length - 1));
+    }
+}
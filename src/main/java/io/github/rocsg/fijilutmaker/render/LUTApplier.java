@@ -0,0 +1,287 @@
+package io.github.rocsg.fijilutmaker.render;
+
+import io.github.rocsg.fijilutmaker.color.ColorBlindSimulator;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Applies a LUT to a single-channel 8-bit or 16-bit image, producing the normal, deuteranope and tritanope
+ * renderings (ColorBlindSimulator at full severity) in one pass. The three tables (one entry per possible sample value: 256 or 65536) are
+ * computed once per LUT; pixels are then mapped with plain array indexing on the backing DataBuffer
+ * arrays, and rows are split across the common fork-join pool for large images.
+ */
+public class LUTApplier {
+
+    public static final int NORMAL = 0, DEUTERANOPE = 1, TRITANOPE = 2;
+    public static final int VIEWS = 3;
+
+    /** Images with fewer pixels are mapped on the calling thread. */
+    static final int PARALLEL_THRESHOLD = 1 << 18;
+    private static final int ROWS_CHUNK_PIXELS = 1 << 16;
+
+    private final int levels;     // number of sample values: 256 or 65536
+    private final int[][] tables; // packed 0xRRGGBB per sample value
+
+    /**
+     * Applier for 8-bit images.
+     * @param lut LUT to apply, or null for a plain grayscale rendering.
+     */
+    public LUTApplier(PackedLUT lut) {
+        this(lut == null ? null : IntensityMapping.forBitDepth(lut, 8), 256);
+    }
+
+    /**
+     * Applier for images with sample values in [0, levels) (256 for 8-bit, 65536 for 16-bit data),
+     * each value mapped through mapping; a null mapping gives a grayscale rendering of the full range.
+     */
+    public LUTApplier(IntensityMapping mapping, int levels) {
+        if (levels != 256 && levels != 65536) throw new IllegalArgumentException("levels must be 256 or 65536");
+        this.levels = levels;
+        tables = new int[VIEWS][];
+        if (mapping != null) {
+            tables[NORMAL] = mapping.integerTable(levels);
+        } else {
+            tables[NORMAL] = new int[levels];
+            int shift = (levels == 256) ? 0 : 8;
+            for (int v = 0; v < levels; v++) tables[NORMAL][v] = PackedLUT.pack(v >> shift, v >> shift, v >> shift);
+        }
+        tables[DEUTERANOPE] = new int[levels];
+        tables[TRITANOPE] = new int[levels];
+        ColorBlindSimulator.DEUTERANOPIA.simulate(tables[NORMAL], tables[DEUTERANOPE], levels);
+        ColorBlindSimulator.TRITANOPIA.simulate(tables[NORMAL], tables[TRITANOPE], levels);
+    }
+
+    /**
+     * Applier suited to img: 8-bit images use the LUT over [0,255], 16-bit images index a 65536-entry
+     * table over [0,65535] (a 65536-entry LUT is then used directly, without going through 8 bits).
+     */
+    public static LUTApplier forImage(PackedLUT lut, BufferedImage img) {
+        int levels = levelsOf(img);
+        return new LUTApplier(lut == null ? null : IntensityMapping.forBitDepth(lut, levels == 256 ? 8 : 16), levels);
+    }
+
+    /** 256 for images with at most 8 bits per sample, 65536 otherwise. */
+    public static int levelsOf(BufferedImage img) {
+        return img.getSampleModel().getSampleSize(0) <= 8 ? 256 : 65536;
+    }
+
+    public int getLevels() { return levels; }
+
+    /** The packed table (one entry per sample value) used for a view (NORMAL, DEUTERANOPE or TRITANOPE). */
+    public int[] getTable(int view) {
+        return tables[view].clone();
+    }
+
+    /**
+     * Map src into three new TYPE_INT_RGB images (normal, deuteranope, tritanope).
+     */
+    public BufferedImage[] apply(BufferedImage src) {
+        BufferedImage[] dst = new BufferedImage[VIEWS];
+        apply(src, dst);
+        return dst;
+    }
+
+    /**
+     * Map src into dst, reusing dst images when they are TYPE_INT_RGB of the right size
+     * (null or mismatching entries are replaced).
+     */
+    public void apply(BufferedImage src, BufferedImage[] dst) {
+        apply(src, dst, () -> false);
+    }
+
+    /**
+     * Same as {@link #apply(BufferedImage, BufferedImage[])}, polling cancelled between blocks of rows.
+     * Returns false if the mapping was cancelled (dst content is then incomplete).
+     */
+    public boolean apply(BufferedImage src, BufferedImage[] dst, BooleanSupplier cancelled) {
+        int w = src.getWidth(), h = src.getHeight();
+        for (int v = 0; v < VIEWS; v++) {
+            if (dst[v] == null || dst[v].getType() != BufferedImage.TYPE_INT_RGB
+                    || dst[v].getWidth() != w || dst[v].getHeight() != h)
+                dst[v] = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        }
+        int[][] out = new int[VIEWS][];
+        for (int v = 0; v < VIEWS; v++)
+            out[v] = ((DataBufferInt) dst[v].getRaster().getDataBuffer()).getData();
+
+        Raster raster = src.getRaster();
+        int rowsPerTask = Math.max(1, ROWS_CHUNK_PIXELS / Math.max(1, w));
+        if ((long) w * h < PARALLEL_THRESHOLD) {
+            for (int y = 0; y < h && !cancelled.getAsBoolean(); y += rowsPerTask)
+                mapRows(raster, out, y, Math.min(h, y + rowsPerTask));
+        } else {
+            ForkJoinPool.commonPool().invoke(new RowsTask(raster, out, 0, h, rowsPerTask, cancelled));
+        }
+        return !cancelled.getAsBoolean();
+    }
+
+    /**
+     * Bring dst up to date when it currently holds a rendering made with previousTable (see {@link #getTable}).
+     * Only the pixels whose value maps to a different color are rewritten, using the per-value pixel index
+     * of src; falls back to a full {@link #apply} when dst is not reusable or most pixels changed.
+     * Returns false if cancelled.
+     */
+    public boolean update(BufferedImage src, PixelIndex index, int[] previousTable, BufferedImage[] dst,
+                          BooleanSupplier cancelled) {
+        int w = src.getWidth(), h = src.getHeight();
+        boolean reusable = previousTable != null && previousTable.length == levels
+                && index.levels() == levels && index.size() == w * h;
+        for (int v = 0; v < VIEWS && reusable; v++)
+            reusable = dst[v] != null && dst[v].getType() == BufferedImage.TYPE_INT_RGB
+                    && dst[v].getWidth() == w && dst[v].getHeight() == h;
+        if (!reusable) return apply(src, dst, cancelled);
+
+        int[] changed = new int[levels];
+        int nChanged = 0;
+        long changedPixels = 0;
+        for (int v = 0; v < levels; v++) {
+            if (tables[NORMAL][v] != previousTable[v]) {
+                changed[nChanged++] = v;
+                changedPixels += index.count(v);
+            }
+        }
+        if (changedPixels > (long) w * h / 4) return apply(src, dst, cancelled);
+
+        int[] o0 = ((DataBufferInt) dst[NORMAL].getRaster().getDataBuffer()).getData();
+        int[] o1 = ((DataBufferInt) dst[DEUTERANOPE].getRaster().getDataBuffer()).getData();
+        int[] o2 = ((DataBufferInt) dst[TRITANOPE].getRaster().getDataBuffer()).getData();
+        for (int k = 0; k < nChanged; k++) {
+            if (cancelled.getAsBoolean()) return false;
+            int v = changed[k];
+            int c0 = tables[NORMAL][v], c1 = tables[DEUTERANOPE][v], c2 = tables[TRITANOPE][v];
+            int[] pixels = index.pixels;
+            for (int p = index.start[v], end = index.start[v + 1]; p < end; p++) {
+                int o = pixels[p];
+                o0[o] = c0;
+                o1[o] = c1;
+                o2[o] = c2;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Pixels of an 8-bit or 16-bit image grouped by value (counting sort), so that the pixels having a given
+     * value can be visited without scanning the image. Build once per source image.
+     */
+    public static final class PixelIndex {
+        private final int[] start;  // pixels of value v are pixels[start[v] .. start[v+1])
+        private final int[] pixels; // offsets y * width + x
+
+        public PixelIndex(BufferedImage src) {
+            Raster raster = src.getRaster();
+            int levels = levelsOf(src), maxValue = levels - 1;
+            int w = raster.getWidth(), h = raster.getHeight();
+            int[] row = new int[w];
+            int[] count = new int[levels];
+            for (int y = 0; y < h; y++) {
+                raster.getSamples(raster.getMinX(), raster.getMinY() + y, w, 1, 0, row);
+                for (int x = 0; x < w; x++) count[Math.max(0, Math.min(maxValue, row[x]))]++;
+            }
+            start = new int[levels + 1];
+            for (int v = 0; v < levels; v++) start[v + 1] = start[v] + count[v];
+            int[] next = java.util.Arrays.copyOf(start, levels);
+            pixels = new int[w * h];
+            for (int y = 0; y < h; y++) {
+                raster.getSamples(raster.getMinX(), raster.getMinY() + y, w, 1, 0, row);
+                for (int x = 0; x < w; x++) pixels[next[Math.max(0, Math.min(maxValue, row[x]))]++] = y * w + x;
+            }
+        }
+
+        /** Number of distinct values indexed (256 or 65536). */
+        public int levels() { return start.length - 1; }
+
+        public int size() { return pixels.length; }
+        public int count(int value) { return start[value + 1] - start[value]; }
+    }
+
+    // ---- Pixel mapping ----
+
+    private void mapRows(Raster raster, int[][] out, int y0, int y1) {
+        int w = raster.getWidth();
+        int[] t0 = tables[NORMAL], t1 = tables[DEUTERANOPE], t2 = tables[TRITANOPE];
+        int[] o0 = out[NORMAL], o1 = out[DEUTERANOPE], o2 = out[TRITANOPE];
+
+        boolean direct = raster.getSampleModel() instanceof ComponentSampleModel
+                && (levels == 256 ? raster.getDataBuffer() instanceof DataBufferByte
+                                  : raster.getDataBuffer() instanceof DataBufferUShort);
+        if (direct) {
+            ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+            int bank = sm.getBankIndices()[0];
+            byte[] bytes = (levels == 256) ? ((DataBufferByte) raster.getDataBuffer()).getData(bank) : null;
+            short[] shorts = (levels == 256) ? null : ((DataBufferUShort) raster.getDataBuffer()).getData(bank);
+            int pixelStride = sm.getPixelStride();
+            int scanline = sm.getScanlineStride();
+            int base = raster.getDataBuffer().getOffsets()[bank] + sm.getBandOffsets()[0]
+                    - raster.getSampleModelTranslateX() * pixelStride
+                    - raster.getSampleModelTranslateY() * scanline;
+            for (int y = y0; y < y1; y++) {
+                int in = base + (raster.getMinY() + y) * scanline + raster.getMinX() * pixelStride;
+                int o = y * w;
+                if (bytes != null) {
+                    for (int x = 0; x < w; x++, in += pixelStride, o++) {
+                        int val = bytes[in] & 0xFF;
+                        o0[o] = t0[val];
+                        o1[o] = t1[val];
+                        o2[o] = t2[val];
+                    }
+                } else {
+                    for (int x = 0; x < w; x++, in += pixelStride, o++) {
+                        int val = shorts[in] & 0xFFFF;
+                        o0[o] = t0[val];
+                        o1[o] = t1[val];
+                        o2[o] = t2[val];
+                    }
+                }
+            }
+        } else {
+            // Generic path: one row of samples at a time (band 0), clamped to [0, levels-1]
+            int[] row = new int[w];
+            int maxValue = levels - 1;
+            for (int y = y0; y < y1; y++) {
+                raster.getSamples(raster.getMinX(), raster.getMinY() + y, w, 1, 0, row);
+                int o = y * w;
+                for (int x = 0; x < w; x++, o++) {
+                    int val = Math.max(0, Math.min(maxValue, row[x]));
+                    o0[o] = t0[val];
+                    o1[o] = t1[val];
+                    o2[o] = t2[val];
+                }
+            }
+        }
+    }
+
+    private class RowsTask extends RecursiveAction {
+        private final Raster raster;
+        private final int[][] out;
+        private final int y0, y1, rowsPerTask;
+        private final BooleanSupplier cancelled;
+
+        RowsTask(Raster raster, int[][] out, int y0, int y1, int rowsPerTask, BooleanSupplier cancelled) {
+            this.raster = raster; this.out = out;
+            this.y0 = y0; this.y1 = y1; this.rowsPerTask = rowsPerTask;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.getAsBoolean()) return;
+            if (y1 - y0 <= rowsPerTask) {
+                mapRows(raster, out, y0, y1);
+                return;
+            }
+            int mid = (y0 + y1) >>> 1;
+            invokeAll(new RowsTask(raster, out, y0, mid, rowsPerTask, cancelled),
+                      new RowsTask(raster, out, mid, y1, rowsPerTask, cancelled));
+        }
+    }
+}
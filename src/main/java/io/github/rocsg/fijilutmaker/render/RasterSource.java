@@ -0,0 +1,164 @@
+package io.github.rocsg.fijilutmaker.render;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Single-channel image stored uncompressed in a file, read band by band so that images larger than
+ * the heap can be processed (see {@link TiledLUTRenderer}).
+ * The layout is a grid of tiles, each stored row by row at its own file offset: raw files are one
+ * tile covering the whole image, striped TIFFs one column of full-width tiles.
+ * Samples are read with positional reads into a direct buffer of about READ_BUFFER_BYTES reused by each
+ * thread, rather than mapped: a band of a tiled image would otherwise create one mapping per tile, all
+ * kept alive until garbage collection.
+ * Thread-safe: positional reads do not share a file position.
+ */
+public final class RasterSource implements AutoCloseable {
+
+    public enum SampleType {
+        UINT8(1), UINT16(2), FLOAT32(4);
+        public final int bytes;
+        SampleType(int bytes) { this.bytes = bytes; }
+    }
+
+    private final FileChannel channel;
+    private final int width, height;
+    private final SampleType type;
+    private final ByteOrder order;
+    private final int tileWidth, tileHeight, tilesAcross;
+    private final long[] tileOffsets;
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+    private final ThreadLocal<ByteBuffer> readBuffers = new ThreadLocal<>();
+
+    RasterSource(FileChannel channel, int width, int height, SampleType type, ByteOrder order,
+                 int tileWidth, int tileHeight, long[] tileOffsets) throws IOException {
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        this.type = type;
+        this.order = order;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.tilesAcross = (width + tileWidth - 1) / tileWidth;
+        this.tileOffsets = tileOffsets;
+        int tilesDown = (height + tileHeight - 1) / tileHeight;
+        if (tileOffsets.length < tilesAcross * tilesDown)
+            throw new IOException("Missing tile or strip offsets");
+        long rowBytes = (long) tileWidth * type.bytes;
+        for (int tr = 0; tr < tilesDown; tr++) {
+            int rows = Math.min(tileHeight, height - tr * tileHeight);
+            for (int tx = 0; tx < tilesAcross; tx++) {
+                int w = Math.min(tileWidth, width - tx * tileWidth);
+                long off = tileOffsets[tr * tilesAcross + tx];
+                if (off < 0 || off + (rows - 1) * rowBytes + (long) w * type.bytes > channel.size())
+                    throw new IOException("Tile or strip " + (tr * tilesAcross + tx) + " lies outside of the file");
+            }
+        }
+    }
+
+    /**
+     * Raw file: width x height samples, row by row, after headerBytes bytes.
+     */
+    public static RasterSource raw(Path file, int width, int height, SampleType type, ByteOrder order,
+                                   long headerBytes) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (headerBytes + (long) width * height * type.bytes > ch.size())
+                throw new IOException("File too short for a " + width + "x" + height + " " + type + " image");
+            return new RasterSource(ch, width, height, type, order, width, height, new long[] {headerBytes});
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /**
+     * First image of an uncompressed single-channel TIFF (8/16-bit unsigned or 32-bit float; strips or tiles).
+     */
+    public static RasterSource tiff(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return TiffLayout.read(ch);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public SampleType getSampleType() { return type; }
+
+    /**
+     * Map rows [y0, y1) to packed colors: out[(y - y0) * width + x].
+     */
+    void mapRows(int y0, int y1, IntensityMapping mapping, int[] table, int[] out) throws IOException {
+        float[] floats = (type == SampleType.FLOAT32) ? new float[tileWidth] : null;
+        long rowBytes = (long) tileWidth * type.bytes;
+        if (rowBytes > Integer.MAX_VALUE) throw new IOException("Rows too large to read: " + rowBytes + " bytes");
+        // Rows of a tile read at once: as many as fit in the buffer, at least one
+        int rowsPerRead = (int) Math.max(1, READ_BUFFER_BYTES / rowBytes);
+        ByteBuffer buf = readBuffer((int) Math.min(Integer.MAX_VALUE, Math.max(READ_BUFFER_BYTES, rowBytes)));
+        int tileRow0 = y0 / tileHeight, tileRow1 = (y1 - 1) / tileHeight;
+        for (int tr = tileRow0; tr <= tileRow1; tr++) {
+            int ty0 = Math.max(y0, tr * tileHeight), ty1 = Math.min(y1, (tr + 1) * tileHeight);
+            for (int tx = 0; tx < tilesAcross; tx++)
+                for (int ry0 = ty0; ry0 < ty1; ry0 += rowsPerRead) {
+                    int ry1 = Math.min(ty1, ry0 + rowsPerRead);
+                    int x0 = tx * tileWidth, w = Math.min(tileWidth, width - x0);
+                    long start = tileOffsets[tr * tilesAcross + tx] + (ry0 - tr * tileHeight) * rowBytes;
+                    read(buf, start, (int) ((ry1 - ry0 - 1) * rowBytes + (long) w * type.bytes));
+                    mapRead(buf, ry0, ry1, y0, x0, w, (int) rowBytes, mapping, table, floats, out);
+                }
+        }
+    }
+
+    // Map rows [ry0, ry1) of one tile, read into buf, to out
+    private void mapRead(ByteBuffer buf, int ry0, int ry1, int y0, int x0, int w, int rowBytes,
+                         IntensityMapping mapping, int[] table, float[] floats, int[] out) {
+        for (int y = ry0; y < ry1; y++) {
+            int in = (y - ry0) * rowBytes;
+            int o = (y - y0) * width + x0;
+            switch (type) {
+                case UINT8:
+                    for (int x = 0; x < w; x++) out[o + x] = table[buf.get(in + x) & 0xFF];
+                    break;
+                case UINT16:
+                    for (int x = 0; x < w; x++) out[o + x] = table[buf.getShort(in + 2 * x) & 0xFFFF];
+                    break;
+                default:
+                    for (int x = 0; x < w; x++) floats[x] = buf.getFloat(in + 4 * x);
+                    mapping.map(floats, 0, out, o, w);
+            }
+        }
+    }
+
+    // Per-thread direct buffer of at least capacity bytes
+    private ByteBuffer readBuffer(int capacity) {
+        ByteBuffer buf = readBuffers.get();
+        if (buf == null || buf.capacity() < capacity) {
+            buf = ByteBuffer.allocateDirect(capacity).order(order);
+            readBuffers.set(buf);
+        }
+        return buf;
+    }
+
+    // Read length bytes at file offset start into buf, from index 0
+    private void read(ByteBuffer buf, long start, int length) throws IOException {
+        buf.clear().limit(length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, start + buf.position()) < 0)
+                throw new EOFException("Unexpected end of file at " + (start + buf.position()));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
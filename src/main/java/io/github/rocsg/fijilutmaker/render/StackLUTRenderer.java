@@ -0,0 +1,159 @@
+package io.github.rocsg.fijilutmaker.render;
+
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+import ij.process.FloatProcessor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Applies a LUT to ImageJ stacks, either by attaching it as the display LUT (no pixel is touched),
+ * or by rendering every slice to RGB. Rendering runs on the common fork-join pool with at most
+ * maxInFlight slices being converted at the same time, so the working memory does not grow with
+ * the stack size. 8-bit and 16-bit samples are mapped through a table with one color per value,
+ * float samples through the IntensityMapping window, without converting to 8 bits first.
+ * Call from a background thread: the render methods block until done.
+ */
+public class StackLUTRenderer {
+
+    /** Receives progress from the worker threads (calls may be concurrent). */
+    public interface ProgressListener {
+        void progress(int slicesDone, int slicesTotal);
+    }
+
+    /** Receives each rendered slice (1-based index, packed 0xRRGGBB pixels); calls may be concurrent. */
+    public interface SliceSink {
+        void accept(int slice, int[] rgbPixels);
+    }
+
+    private final PackedLUT lut;
+    private final int maxInFlight;
+
+    public StackLUTRenderer(PackedLUT lut) {
+        this(lut, Math.max(2, ForkJoinPool.commonPool().getParallelism() + 1));
+    }
+
+    /**
+     * @param maxInFlight maximum number of slices converted at the same time (at least 1)
+     */
+    public StackLUTRenderer(PackedLUT lut, int maxInFlight) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be at least 1");
+        this.lut = lut;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Set lut as the display LUT of a grayscale image (resampled to 256 entries if needed).
+     * Pixels are not modified; for 16-bit and float data the LUT spans the current display range.
+     */
+    public static void attach(ImagePlus imp, PackedLUT lut) {
+        if (imp.getType() == ImagePlus.COLOR_RGB || imp.getType() == ImagePlus.COLOR_256)
+            throw new IllegalArgumentException("Cannot attach a LUT to an RGB or indexed color image");
+        imp.setLut(lut.resample(256).toImageJLUT());
+        imp.updateAndDraw();
+    }
+
+    /**
+     * Render all slices of imp to a new RGB stack, the LUT spanning imp's display range. Returns null if cancelled.
+     */
+    public ImagePlus renderToRGB(ImagePlus imp, ProgressListener progress, BooleanSupplier cancelled) {
+        return renderToRGB(imp, IntensityMapping.forImage(lut, imp), progress, cancelled);
+    }
+
+    /**
+     * Render all slices of imp to a new RGB stack with an explicit mapping (LUT, window and gamma). Returns null if cancelled.
+     */
+    public ImagePlus renderToRGB(ImagePlus imp, IntensityMapping mapping, ProgressListener progress,
+                                 BooleanSupplier cancelled) {
+        ImageStack in = imp.getStack();
+        ImageStack out = new ImageStack(in.getWidth(), in.getHeight(), in.getSize());
+        if (!render(imp, mapping, (s, px) -> out.setPixels(px, s), progress, cancelled)) return null;
+        for (int i = 1; i <= in.getSize(); i++) out.setSliceLabel(in.getSliceLabel(i), i);
+        ImagePlus result = new ImagePlus(imp.getShortTitle() + "-LUT", out);
+        result.setDimensions(imp.getNChannels(), imp.getNSlices(), imp.getNFrames());
+        result.setCalibration(imp.getCalibration().copy());
+        return result;
+    }
+
+    /**
+     * Render all slices of imp, handing each one to sink as soon as it is ready (slices may arrive out of order).
+     * Returns false if cancelled; slices already handed to the sink are not revoked.
+     * A failure in a slice stops the render and is rethrown here once the slices in flight are done.
+     */
+    public boolean render(ImagePlus imp, IntensityMapping mapping, SliceSink sink, ProgressListener progress,
+                          BooleanSupplier cancelled) {
+        ImageStack stack = imp.getStack();
+        int n = stack.getSize();
+        SliceMapper mapper = new SliceMapper(mapping);
+        Semaphore slots = new Semaphore(maxInFlight);
+        AtomicInteger done = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        int slice = 1;
+        try {
+            for (; slice <= n && !cancelled.getAsBoolean() && failure.get() == null; slice++) {
+                slots.acquire();
+                int s = slice;
+                pool.execute(() -> {
+                    try {
+                        if (cancelled.getAsBoolean() || failure.get() != null) return;
+                        sink.accept(s, mapper.map(stack.getProcessor(s)));
+                        int d = done.incrementAndGet();
+                        if (progress != null) progress.progress(d, n);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+            slots.acquire(maxInFlight); // wait for the slices in flight
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (failure.get() != null) throw failure.get();
+        return done.get() == n;
+    }
+
+    /** Packed RGB rendering of one slice. */
+    public int[] renderSlice(ImageProcessor ip, IntensityMapping mapping) {
+        return new SliceMapper(mapping).map(ip);
+    }
+
+    // Per-render tables, built on first use by the type of the slices
+    private static final class SliceMapper {
+        private final IntensityMapping mapping;
+        private volatile int[] table8, table16;
+
+        SliceMapper(IntensityMapping mapping) { this.mapping = mapping; }
+
+        int[] map(ImageProcessor ip) {
+            int[] rgb = new int[ip.getPixelCount()];
+            if (ip instanceof FloatProcessor) {
+                float[] px = (float[]) ip.getPixels();
+                mapping.map(px, 0, rgb, 0, px.length);
+            } else if (ip instanceof ShortProcessor) {
+                short[] px = (short[]) ip.getPixels();
+                int[] t = table16;
+                if (t == null) table16 = t = mapping.integerTable(65536);
+                for (int i = 0; i < px.length; i++) rgb[i] = t[px[i] & 0xFFFF];
+            } else {
+                if (ip.getBitDepth() != 8) ip = ip.convertToByte(false); // RGB: luminance
+                byte[] px = (byte[]) ip.getPixels();
+                int[] t = table8;
+                if (t == null) table8 = t = mapping.integerTable(256);
+                for (int i = 0; i < px.length; i++) rgb[i] = t[px[i] & 0xFF];
+            }
+            return rgb;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.rocsg.fijilutmaker.render;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Minimal TIFF support for streaming: reads the layout of the first image of a classic (not Big) TIFF,
+ * and writes the header of an uncompressed RGB TIFF whose strips follow it contiguously.
+ */
+final class TiffLayout {
+
+    static final int WIDTH = 256, HEIGHT = 257, BITS_PER_SAMPLE = 258, COMPRESSION = 259, PHOTOMETRIC = 262,
+            STRIP_OFFSETS = 273, SAMPLES_PER_PIXEL = 277, ROWS_PER_STRIP = 278, STRIP_BYTE_COUNTS = 279,
+            PLANAR_CONFIG = 284, TILE_WIDTH = 322, TILE_LENGTH = 323, TILE_OFFSETS = 324, SAMPLE_FORMAT = 339;
+
+    private static final int SHORT = 3, LONG = 4;
+
+    private TiffLayout() {}
+
+    static RasterSource read(FileChannel ch) throws IOException {
+        ByteBuffer head = readAt(ch, 0, 8, ByteOrder.BIG_ENDIAN);
+        ByteOrder order;
+        if (head.get(0) == 'I' && head.get(1) == 'I') order = ByteOrder.LITTLE_ENDIAN;
+        else if (head.get(0) == 'M' && head.get(1) == 'M') order = ByteOrder.BIG_ENDIAN;
+        else throw new IOException("Not a TIFF file");
+        head.order(order);
+        if (head.getShort(2) != 42) throw new IOException("Unsupported TIFF variant (BigTIFF?)");
+        long ifd = head.getInt(4) & 0xFFFFFFFFL;
+
+        int entries = readAt(ch, ifd, 2, order).getShort(0) & 0xFFFF;
+        ByteBuffer dir = readAt(ch, ifd + 2, entries * 12, order);
+        int width = 0, height = 0, bits = 1, compression = 1, photometric = -1, spp = 1, format = 1;
+        int rowsPerStrip = Integer.MAX_VALUE, tileWidth = 0, tileHeight = 0;
+        long[] offsets = null;
+        for (int e = 0; e < entries; e++) {
+            int p = e * 12;
+            int tag = dir.getShort(p) & 0xFFFF;
+            switch (tag) {
+                case WIDTH: width = (int) value(dir, p); break;
+                case HEIGHT: height = (int) value(dir, p); break;
+                case BITS_PER_SAMPLE: bits = (int) values(ch, dir, p, order)[0]; break;
+                case COMPRESSION: compression = (int) value(dir, p); break;
+                case PHOTOMETRIC: photometric = (int) value(dir, p); break;
+                case SAMPLES_PER_PIXEL: spp = (int) value(dir, p); break;
+                case ROWS_PER_STRIP: rowsPerStrip = (int) Math.min(Integer.MAX_VALUE, value(dir, p)); break;
+                case TILE_WIDTH: tileWidth = (int) value(dir, p); break;
+                case TILE_LENGTH: tileHeight = (int) value(dir, p); break;
+                case STRIP_OFFSETS: case TILE_OFFSETS: offsets = values(ch, dir, p, order); break;
+                case SAMPLE_FORMAT: format = (int) values(ch, dir, p, order)[0]; break;
+                default: // ignored
+            }
+        }
+        if (compression != 1) throw new IOException("Compressed TIFF is not supported (compression " + compression + ")");
+        if (spp != 1 || photometric > 1) throw new IOException("Only single-channel grayscale TIFF is supported");
+        if (width <= 0 || height <= 0 || offsets == null) throw new IOException("Incomplete TIFF directory");
+
+        RasterSource.SampleType type;
+        if (bits == 8 && format == 1) type = RasterSource.SampleType.UINT8;
+        else if (bits == 16 && format == 1) type = RasterSource.SampleType.UINT16;
+        else if (bits == 32 && format == 3) type = RasterSource.SampleType.FLOAT32;
+        else throw new IOException("Unsupported TIFF samples: " + bits + " bits, format " + format);
+
+        if (tileWidth > 0 && tileHeight > 0)
+            return new RasterSource(ch, width, height, type, order, tileWidth, tileHeight, offsets);
+        return new RasterSource(ch, width, height, type, order, width, Math.min(rowsPerStrip, height), offsets);
+    }
+
+    /**
+     * Little-endian header for an uncompressed 8-bit RGB image stored as strips of rowsPerStrip rows,
+     * the first strip starting right after the header. Fails if the file would exceed 4 GB.
+     */
+    static ByteBuffer rgbHeader(int width, int height, int rowsPerStrip) throws IOException {
+        int strips = (height + rowsPerStrip - 1) / rowsPerStrip;
+        int entries = 10;
+        int ifdBytes = 2 + entries * 12 + 4;
+        int bitsOffset = 8 + ifdBytes;
+        int offsetsOffset = bitsOffset + 6;
+        int countsOffset = offsetsOffset + 4 * strips;
+        long dataOffset = countsOffset + 4L * strips;
+        long stripBytes = (long) width * rowsPerStrip * 3;
+        long total = dataOffset + (long) width * height * 3;
+        if (total > 0xFFFFFFFFL) throw new IOException("Output exceeds the 4 GB limit of TIFF: use raw output");
+
+        ByteBuffer b = ByteBuffer.allocate((int) dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+        b.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        b.putShort((short) entries);
+        entry(b, WIDTH, LONG, 1, width);
+        entry(b, HEIGHT, LONG, 1, height);
+        entry(b, BITS_PER_SAMPLE, SHORT, 3, bitsOffset);
+        entry(b, COMPRESSION, SHORT, 1, 1);
+        entry(b, PHOTOMETRIC, SHORT, 1, 2);
+        entry(b, STRIP_OFFSETS, LONG, strips, strips == 1 ? dataOffset : offsetsOffset);
+        entry(b, SAMPLES_PER_PIXEL, SHORT, 1, 3);
+        entry(b, ROWS_PER_STRIP, LONG, 1, rowsPerStrip);
+        entry(b, STRIP_BYTE_COUNTS, LONG, strips, strips == 1 ? (long) width * height * 3 : countsOffset);
+        entry(b, PLANAR_CONFIG, SHORT, 1, 1);
+        b.putInt(0); // no next IFD
+        b.putShort((short) 8).putShort((short) 8).putShort((short) 8);
+        for (int s = 0; s < strips; s++) b.putInt((int) (dataOffset + s * stripBytes));
+        for (int s = 0; s < strips; s++)
+            b.putInt((int) (Math.min(height - s * rowsPerStrip, rowsPerStrip) * (long) width * 3));
+        b.flip();
+        return b;
+    }
+
+    private static void entry(ByteBuffer b, int tag, int type, int count, long value) {
+        b.putShort((short) tag).putShort((short) type).putInt(count);
+        if (type == SHORT && count == 1) b.putShort((short) value).putShort((short) 0);
+        else b.putInt((int) value);
+    }
+
+    // Single SHORT or LONG value stored in the entry
+    private static long value(ByteBuffer dir, int p) {
+        int type = dir.getShort(p + 2);
+        return (type == SHORT) ? dir.getShort(p + 8) & 0xFFFF : dir.getInt(p + 8) & 0xFFFFFFFFL;
+    }
+
+    // SHORT or LONG array, inline or at the offset given in the entry
+    private static long[] values(FileChannel ch, ByteBuffer dir, int p, ByteOrder order) throws IOException {
+        int type = dir.getShort(p + 2);
+        int count = dir.getInt(p + 4);
+        int size = (type == SHORT) ? 2 : 4;
+        if (type != SHORT && type != LONG) throw new IOException("Unexpected TIFF field type " + type);
+        if (count < 0 || count > (1 << 26)) throw new IOException("Unexpected TIFF field count " + count);
+        ByteBuffer src;
+        int base;
+        if (count * size <= 4) {
+            src = dir;
+            base = p + 8;
+        } else {
+            src = readAt(ch, dir.getInt(p + 8) & 0xFFFFFFFFL, count * size, order);
+            base = 0;
+        }
+        long[] out = new long[count];
+        for (int i = 0; i < count; i++)
+            out[i] = (type == SHORT) ? src.getShort(base + 2 * i) & 0xFFFF : src.getInt(base + 4 * i) & 0xFFFFFFFFL;
+        return out;
+    }
+
+    private static ByteBuffer readAt(FileChannel ch, long pos, int n, ByteOrder order) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(n).order(order);
+        while (b.hasRemaining()) {
+            if (ch.read(b, pos + b.position()) < 0) throw new EOFException("Truncated TIFF file");
+        }
+        b.flip();
+        return b;
+    }
+}
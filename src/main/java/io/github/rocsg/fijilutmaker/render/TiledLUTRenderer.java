@@ -0,0 +1,112 @@
+package io.github.rocsg.fijilutmaker.render;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Colorizes images that do not fit in memory: the source is read band by band through per-thread
+ * read buffers (see {@link RasterSource}), each band is mapped through the LUT and written at its final
+ * position in the output file. Bands are processed on the common fork-join pool, at most maxInFlight
+ * at a time, so heap usage depends on the band size only, not on the image size.
+ * Call from a background thread: render blocks until done.
+ */
+public class TiledLUTRenderer {
+
+    public enum OutputFormat {
+        /** Uncompressed 8-bit RGB TIFF, one strip per band (classic TIFF: at most 4 GB). */
+        TIFF,
+        /** Interleaved RGB bytes, row by row, no header. */
+        RAW_RGB
+    }
+
+    private final IntensityMapping mapping;
+    private final int bandRows;
+    private final int maxInFlight;
+
+    public TiledLUTRenderer(IntensityMapping mapping) {
+        this(mapping, 64, Math.max(2, ForkJoinPool.commonPool().getParallelism() + 1));
+    }
+
+    /**
+     * @param bandRows rows processed per task (and per TIFF strip)
+     * @param maxInFlight maximum number of bands in memory at the same time
+     */
+    public TiledLUTRenderer(IntensityMapping mapping, int bandRows, int maxInFlight) {
+        if (bandRows < 1 || maxInFlight < 1) throw new IllegalArgumentException("bandRows and maxInFlight must be at least 1");
+        this.mapping = mapping;
+        this.bandRows = bandRows;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Render src into the file out (replaced if it exists). Progress is reported in rows, from worker threads.
+     * Returns false if cancelled (out is then incomplete).
+     */
+    public boolean render(RasterSource src, Path out, OutputFormat format,
+                          StackLUTRenderer.ProgressListener progress, BooleanSupplier cancelled) throws IOException {
+        int w = src.getWidth(), h = src.getHeight();
+        int rows = (int) Math.max(1, Math.min(bandRows, Integer.MAX_VALUE / 4 / (long) w)); // int[] per band
+        int[] table = (src.getSampleType() == RasterSource.SampleType.UINT8) ? mapping.integerTable(256)
+                    : (src.getSampleType() == RasterSource.SampleType.UINT16) ? mapping.integerTable(65536) : null;
+
+        try (FileChannel dst = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long dataOffset = 0;
+            if (format == OutputFormat.TIFF) {
+                ByteBuffer header = TiffLayout.rgbHeader(w, h, rows);
+                dataOffset = header.remaining();
+                writeFully(dst, header, 0);
+            }
+
+            Semaphore slots = new Semaphore(maxInFlight);
+            AtomicInteger done = new AtomicInteger();
+            AtomicReference<Exception> failure = new AtomicReference<>();
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            long base = dataOffset;
+            try {
+                for (int y = 0; y < h && !cancelled.getAsBoolean() && failure.get() == null; y += rows) {
+                    slots.acquire();
+                    int y0 = y, y1 = Math.min(h, y + rows);
+                    pool.execute(() -> {
+                        try {
+                            if (cancelled.getAsBoolean() || failure.get() != null) return;
+                            int[] rgb = new int[(y1 - y0) * w];
+                            src.mapRows(y0, y1, mapping, table, rgb);
+                            ByteBuffer band = ByteBuffer.allocate(rgb.length * 3);
+                            for (int v : rgb) band.put((byte) (v >> 16)).put((byte) (v >> 8)).put((byte) v);
+                            band.flip();
+                            writeFully(dst, band, base + (long) y0 * w * 3);
+                            int d = done.addAndGet(y1 - y0);
+                            if (progress != null) progress.progress(d, h);
+                        } catch (IOException | RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                }
+                slots.acquire(maxInFlight); // wait for the bands in flight
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            Exception e = failure.get();
+            if (e instanceof IOException) throw (IOException) e;
+            if (e != null) throw (RuntimeException) e;
+            return done.get() == h;
+        }
+    }
+
+    // Positional writes: bands can be written concurrently
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) position += ch.write(buf, position);
+    }
+}
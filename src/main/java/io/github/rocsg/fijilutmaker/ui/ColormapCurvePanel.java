@@ -1,58 +1,99 @@
 package io.github.rocsg.fijilutmaker.ui;
 
 import io.github.rocsg.fijilutmaker.color.ColorUtils;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.Path2D;
 
+/**
+ * L, a and b of every LUT entry, as three curves normalized to the panel height.
+ * The Lab values are computed once per LUT (batch conversion) and the curves are built once per LUT and
+ * panel size as Path2D; paint only draws the cached paths. LUTs with more than two entries per pixel column
+ * are reduced to the min and max of each column, so narrow peaks and dips are always drawn.
+ */
 public class ColormapCurvePanel extends JPanel {
-    private int[][] lut; // 256x3
+    private static final Color[] CURVE_COLORS = {Color.BLACK, Color.RED, Color.BLUE};
 
-    public ColormapCurvePanel(int[][] lut) {
+    private PackedLUT lut;
+    private float[] lab;           // interleaved L, a, b of lut
+    private float ymin, yspan;     // common vertical range of the three curves
+    private Path2D[] curves;       // built for curvesW x curvesH
+    private int curvesW = -1, curvesH = -1;
+
+    public ColormapCurvePanel(PackedLUT lut) {
         setPreferredSize(new Dimension(256, 80));
         setLut(lut);
     }
 
-    public void setLut(int[][] lut) {
+    public void setLut(PackedLUT lut) {
         this.lut = lut;
+        curves = null;
+        if (lut != null) {
+            int n = lut.size();
+            lab = new float[3 * n];
+            ColorUtils.rgbToLab(lut.toPackedArray(), lab, n);
+            float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+            for (float v : lab) { min = Math.min(min, v); max = Math.max(max, v); }
+            ymin = min;
+            yspan = max - min + 1e-3f;
+        }
         repaint();
     }
 
+    // Curves for the current size, rebuilt only after a LUT or size change
+    Path2D[] curves(int w, int h) {
+        if (curves != null && w == curvesW && h == curvesH) return curves;
+        int n = lut.size();
+        curves = new Path2D[3];
+        for (int ch = 0; ch < 3; ch++) {
+            Path2D.Float p = new Path2D.Float(Path2D.WIND_NON_ZERO, Math.min(n, 2 * Math.max(1, w)) + 1);
+            if (n <= 2 * w) {
+                for (int i = 0; i < n; i++) addVertex(p, i, ch, n, w, h);
+            } else {
+                // Min and max of each pixel column, in index order
+                for (int c = 0; c < w; c++) {
+                    int i0 = (int) ((long) c * n / w), i1 = (int) ((long) (c + 1) * n / w);
+                    int lo = i0, hi = i0;
+                    for (int i = i0 + 1; i < i1; i++) {
+                        float v = lab[3 * i + ch];
+                        if (v < lab[3 * lo + ch]) lo = i;
+                        if (v > lab[3 * hi + ch]) hi = i;
+                    }
+                    addVertex(p, Math.min(lo, hi), ch, n, w, h);
+                    if (lo != hi) addVertex(p, Math.max(lo, hi), ch, n, w, h);
+                }
+            }
+            curves[ch] = p;
+        }
+        curvesW = w;
+        curvesH = h;
+        return curves;
+    }
+
+    private void addVertex(Path2D.Float p, int i, int ch, int n, int w, int h) {
+        float x = (float) i * w / n;
+        float y = h - (lab[3 * i + ch] - ymin) / yspan * (h - 5);
+        if (p.getCurrentPoint() == null) p.moveTo(x, y); else p.lineTo(x, y);
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         if (lut == null) return;
         int w = getWidth(), h = getHeight();
-        float[] L = new float[lut.length], a = new float[lut.length], b = new float[lut.length];
-        float Lmin = 100, Lmax = 0, amin = 100, amax = -100, bmin = 100, bmax = -100;
-        for (int i = 0; i < lut.length; i++) {
-            float[] lab = ColorUtils.rgb2labFloat(lut[i]);
-            L[i] = lab[0]; a[i] = lab[1]; b[i] = lab[2];
-            Lmin = Math.min(Lmin, L[i]); Lmax = Math.max(Lmax, L[i]);
-            amin = Math.min(amin, a[i]); amax = Math.max(amax, a[i]);
-            bmin = Math.min(bmin, b[i]); bmax = Math.max(bmax, b[i]);
-        }
-        // Normalize curves to panel height
-        float ymin = Math.min(Lmin, Math.min(amin, bmin)), ymax = Math.max(Lmax, Math.max(amax, bmax));
-        float yspan = ymax - ymin + 1e-3f;
+        Graphics2D g2 = (Graphics2D) g;
         // Draw axes
-        g.setColor(Color.LIGHT_GRAY);
-        g.drawLine(0, h / 2, w, h / 2);
+        g2.setColor(Color.LIGHT_GRAY);
+        g2.drawLine(0, h / 2, w, h / 2);
         // Draw L (black), a (red), b (blue)
-        drawCurve(g, L, Color.BLACK, ymin, yspan, w, h);
-        drawCurve(g, a, Color.RED, ymin, yspan, w, h);
-        drawCurve(g, b, Color.BLUE, ymin, yspan, w, h);
+        Path2D[] paths = curves(w, h);
+        for (int ch = 0; ch < 3; ch++) {
+            g2.setColor(CURVE_COLORS[ch]);
+            g2.draw(paths[ch]);
+        }
         g.setColor(Color.BLACK);
         g.drawString("L", 5, 14); g.setColor(Color.RED); g.drawString("a", 25, 14); g.setColor(Color.BLUE); g.drawString("b", 45, 14);
     }
-
-    private void drawCurve(Graphics g, float[] curve, Color color, float ymin, float yspan, int w, int h) {
-        g.setColor(color);
-        for (int i = 1; i < curve.length; i++) {
-            int x0 = (i - 1) * w / curve.length, x1 = i * w / curve.length;
-            int y0 = h - (int) ((curve[i - 1] - ymin) / yspan * (h - 5));
-            int y1 = h - (int) ((curve[i] - ymin) / yspan * (h - 5));
-            g.drawLine(x0, y0, x1, y1);
-        }
-    }
 }
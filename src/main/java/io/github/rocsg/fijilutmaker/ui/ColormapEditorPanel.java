@@ -2,12 +2,14 @@ package io.github.rocsg.fijilutmaker.ui;
 
 import io.github.rocsg.fijilutmaker.model.Colormap;
 import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * Colormap editor with interactive handles for adding, moving, deleting and recoloring points.
@@ -24,6 +26,7 @@ public class ColormapEditorPanel extends JPanel {
     private Colormap colormap;
     private TestImagePanel testImagePanel;
     private LUTPreviewPanel lutPreview;
+    private final LUTRenderScheduler renderScheduler;
     private int selectedIdx = -1;
     private static final int HANDLE_RADIUS = 8;
     private final List<ColormapChangeListener> listeners = new ArrayList<>();
@@ -32,16 +35,16 @@ public class ColormapEditorPanel extends JPanel {
         this.colormap = colormap;
         this.testImagePanel = testImagePanel;
         setLayout(new BorderLayout());
-        lutPreview = new LUTPreviewPanel(colormap.generateLUT());
+        lutPreview = new LUTPreviewPanel(colormap.generatePackedLUT());
         add(lutPreview, BorderLayout.CENTER);
+        renderScheduler = new LUTRenderScheduler(lutPreview, testImagePanel);
 
         // --- Mode selection (interpolation) ---
         JComboBox<Colormap.InterpolationMode> modeBox = new JComboBox<>(Colormap.InterpolationMode.values());
         modeBox.setSelectedItem(colormap.getInterpolationMode());
         modeBox.addActionListener(e -> {
             colormap.setInterpolationMode((Colormap.InterpolationMode) modeBox.getSelectedItem());
-            lutPreview.setLut(colormap.generateLUT());
-            testImagePanel.setLut(lutPreview.getLut());
+            renderScheduler.requestRender(colormap);
             fireColormapChanged();
             repaint();
         });
@@ -70,8 +73,7 @@ public class ColormapEditorPanel extends JPanel {
                     Color newColor = JColorChooser.showDialog(ColormapEditorPanel.this, "Pick Color", new Color(cp.getRgb()[0], cp.getRgb()[1], cp.getRgb()[2]));
                     if (newColor != null) {
                         cp.setRgb(new int[]{newColor.getRed(), newColor.getGreen(), newColor.getBlue()});
-                        lutPreview.setLut(colormap.generateLUT());
-                        testImagePanel.setLut(lutPreview.getLut());
+                        renderScheduler.requestRender(colormap);
 
                         fireColormapChanged();
                         repaint();
@@ -80,8 +82,7 @@ public class ColormapEditorPanel extends JPanel {
                 // Clic droit sur un point : supprimer (sauf s'il y en a que 2)
                 if (idx >= 0 && SwingUtilities.isRightMouseButton(e) && colormap.getPoints().size() > 2) {
                     colormap.removePoint(idx);
-                    lutPreview.setLut(colormap.generateLUT());
-                    testImagePanel.setLut(lutPreview.getLut());
+                    renderScheduler.requestRender(colormap);
 
                     fireColormapChanged();
                     repaint();
@@ -89,11 +90,10 @@ public class ColormapEditorPanel extends JPanel {
                 // Clic gauche hors point : ajouter point à cet endroit (interp couleur)
                 if (idx == -1 && SwingUtilities.isLeftMouseButton(e) && e.getClickCount() == 1) {
                     double pos = Math.max(0.0, Math.min(1.0, (double) e.getX() / (lutPreview.getWidth() - 1)));
-                    int[] rgb = colormap.generateLUT()[(int) Math.round(pos * (colormap.getLutSize() - 1))];
+                    int[] rgb = colormap.evaluate(pos);
                     colormap.addPoint(new ColorPoint(pos, rgb));
-                    colormap.getPoints().sort((a, b) -> Double.compare(a.getPosition(), b.getPosition()));
-                    lutPreview.setLut(colormap.generateLUT());
-                    testImagePanel.setLut(lutPreview.getLut());
+                    colormap.sortPoints();
+                    renderScheduler.requestRender(colormap);
 
                     fireColormapChanged();
                     repaint();
@@ -101,25 +101,27 @@ public class ColormapEditorPanel extends JPanel {
             }
             @Override
             public void mouseExited(MouseEvent e) {
-                hoverPoint = -1;
+                setHoverPoint(-1);
                 setToolTipText(null);
-                repaint();
             }
         });
 
         lutPreview.addMouseMotionListener(new MouseMotionAdapter() {
             @Override
             public void mouseMoved(MouseEvent e) {
-                hoverPoint = getHandleAt(e.getX());
-                if (hoverPoint >= 0) {
-                    ColorPoint cp = colormap.getPoints().get(hoverPoint);
+                int hover = getHandleAt(e.getX());
+                if (hover >= 0) {
+                    ColorPoint cp = colormap.getPoints().get(hover);
                     int[] rgb = cp.getRgb();
                     String text = String.format("Pos: %.3f, RGB: %d,%d,%d", cp.getPosition(), rgb[0], rgb[1], rgb[2]);
                     setToolTipText(text);
                 } else {
-                    setToolTipText(null);
+                    // Couleur interpolée sous la souris
+                    double pos = Math.max(0.0, Math.min(1.0, (double) e.getX() / (lutPreview.getWidth() - 1)));
+                    int[] rgb = colormap.evaluate(pos);
+                    setToolTipText(String.format("Pos: %.3f, RGB: %d,%d,%d (interpolated)", pos, rgb[0], rgb[1], rgb[2]));
                 }
-                repaint();
+                setHoverPoint(hover); // repaints only when the highlighted handle changes
             }
 
             @Override
@@ -132,11 +134,10 @@ public class ColormapEditorPanel extends JPanel {
                     ColorPoint cp = pts.get(selectedIdx);
 
                     cp.setPosition(pos);
-                    colormap.getPoints().sort((a, b) -> Double.compare(a.getPosition(), b.getPosition()));
+                    colormap.sortPoints();
                     int newIdx = pts.indexOf(cp);
                     if(newIdx != selectedIdx) { selectedIdx = newIdx; currentDraggedPoint = selectedIdx; }
-                    lutPreview.setLut(colormap.generateLUT());
-                    testImagePanel.setLut(lutPreview.getLut());
+                    renderScheduler.requestRender(colormap);
 
                     fireColormapChanged();
                     repaint();
@@ -173,10 +174,28 @@ public class ColormapEditorPanel extends JPanel {
         }
     }
 
-    public void updateColormap() {
-        lutPreview.setLut(colormap.generateLUT());
-        testImagePanel.setLut(lutPreview.getLut());
+    private void setHoverPoint(int idx) {
+        if (idx == hoverPoint) return;
+        repaintHandle(hoverPoint);
+        hoverPoint = idx;
+        repaintHandle(hoverPoint);
+    }
+
+    // Repaint just the area of a handle and its highlight ring
+    private void repaintHandle(int idx) {
+        if (idx < 0 || idx >= colormap.getPoints().size()) return;
+        int x = (int) Math.round(colormap.getPoints().get(idx).getPosition() * (lutPreview.getWidth() - 1));
+        int r = HANDLE_RADIUS + 4;
+        repaint(x - r, lutPreview.getHeight() / 2 - r, 2 * r + 1, 2 * r + 1);
+    }
+
+    /** Listener called on the EDT with each LUT rendered for this editor (see LUTRenderScheduler). */
+    public void addLutListener(Consumer<PackedLUT> listener) {
+        renderScheduler.addLutListener(listener);
+    }
 
+    public void updateColormap() {
+        renderScheduler.requestRender(colormap);
         repaint();
     }
 
@@ -1,17 +1,119 @@
 package io.github.rocsg.fijilutmaker.ui;
 
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import io.github.rocsg.fijilutmaker.render.StackLUTRenderer;
+import ij.IJ;
+import ij.ImagePlus;
+import ij.WindowManager;
+
 import javax.swing.*;
 import java.awt.*;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Panel for managing loaded images: stacking, mosaicking, navigation.
+ * Panel for pushing the current colormap onto ImageJ images: attach it as display LUT,
+ * or render the whole stack to RGB in the background (progress bar, cancellable).
  */
 public class ImageStackPanel extends JPanel {
-    // TODO: Handle loading, stacking/mosaicing images, navigation controls.
 
-    public ImageStackPanel() {
+    private final Colormap colormap;
+    private final JButton attachButton = new JButton("Attach LUT");
+    private final JButton renderButton = new JButton("Render RGB");
+    private final JButton cancelButton = new JButton("Cancel");
+    private final JProgressBar progressBar = new JProgressBar();
+    private RenderWorker running; // EDT only
+
+    public ImageStackPanel(Colormap colormap) {
+        this.colormap = colormap;
         setBorder(BorderFactory.createTitledBorder("Images"));
         setLayout(new BorderLayout());
-        add(new JLabel("Load/compose images, stack or mosaic, Z-slider."), BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel(new GridLayout(0, 1, 0, 4));
+        buttons.add(attachButton);
+        buttons.add(renderButton);
+        buttons.add(cancelButton);
+        add(buttons, BorderLayout.NORTH);
+        add(new JLabel("<html>Applies the LUT to the current ImageJ image.</html>"), BorderLayout.CENTER);
+        progressBar.setStringPainted(true);
+        add(progressBar, BorderLayout.SOUTH);
+        cancelButton.setEnabled(false);
+
+        attachButton.addActionListener(e -> attachLut());
+        renderButton.addActionListener(e -> renderStack());
+        cancelButton.addActionListener(e -> { if (running != null) running.cancelled.set(true); });
+    }
+
+    private void attachLut() {
+        ImagePlus imp = currentImage();
+        if (imp == null) return;
+        try {
+            StackLUTRenderer.attach(imp, colormap.generatePackedLUT());
+        } catch (IllegalArgumentException ex) {
+            IJ.error("FijiLUTMaker", ex.getMessage());
+        }
+    }
+
+    private void renderStack() {
+        ImagePlus imp = currentImage();
+        if (imp == null || running != null) return;
+        // LUT is generated here, on the EDT, the worker never reads the mutable colormap
+        running = new RenderWorker(imp, colormap.generatePackedLUT());
+        setRunning(true);
+        running.execute();
+    }
+
+    private ImagePlus currentImage() {
+        ImagePlus imp = WindowManager.getCurrentImage();
+        if (imp == null) IJ.noImage();
+        return imp;
+    }
+
+    private void setRunning(boolean busy) {
+        attachButton.setEnabled(!busy);
+        renderButton.setEnabled(!busy);
+        cancelButton.setEnabled(busy);
+        if (busy) progressBar.setValue(0);
+    }
+
+    private class RenderWorker extends SwingWorker<ImagePlus, Integer> {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        private final ImagePlus imp;
+        private final PackedLUT lut;
+
+        RenderWorker(ImagePlus imp, PackedLUT lut) {
+            this.imp = imp;
+            this.lut = lut;
+            progressBar.setMaximum(imp.getStackSize());
+        }
+
+        @Override
+        protected ImagePlus doInBackground() {
+            return new StackLUTRenderer(lut).renderToRGB(imp, (done, total) -> publish(done), cancelled::get);
+        }
+
+        @Override
+        protected void process(List<Integer> chunks) {
+            int max = 0;
+            for (int d : chunks) max = Math.max(max, d); // slices complete out of order
+            progressBar.setValue(Math.max(progressBar.getValue(), max));
+        }
+
+        @Override
+        protected void done() {
+            running = null;
+            setRunning(false);
+            try {
+                ImagePlus result = get();
+                if (result != null) result.show();
+                else progressBar.setValue(0);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                IJ.handleException(ex.getCause());
+            }
+        }
     }
 }
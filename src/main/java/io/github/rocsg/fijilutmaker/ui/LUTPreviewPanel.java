@@ -1,28 +1,68 @@
 package io.github.rocsg.fijilutmaker.ui;
 
-import io.github.rocsg.fijilutmaker.color.DaltonizeUtils;
+import io.github.rocsg.fijilutmaker.color.ColorBlindSimulator;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 
+/**
+ * Shows the LUT as three bands: normal, deuteranope and tritanope.
+ * The bands are rendered once per LUT into a small image (one row per band, one column per entry up to
+ * MAX_CACHE_WIDTH) converted to the screen's compatible format, then drawn scaled on paint:
+ * a repaint costs a few drawImage calls whatever the LUT size.
+ */
 public class LUTPreviewPanel extends JPanel {
-    private int[][] lut; // 256x3
+    private PackedLUT lut;
     private int bandHeight = 18;
     private static final String[] LABELS = {"Normal", "Deuteranope", "Tritanope"};
+    static final int MAX_CACHE_WIDTH = 4096;
+    private Image bandsImage; // rebuilt lazily after setLut
 
-    public LUTPreviewPanel(int[][] lut) {
+    public LUTPreviewPanel(PackedLUT lut) {
         setPreferredSize(new Dimension(256, bandHeight * 3 + 24));
         setLut(lut);
     }
 
-    public void setLut(int[][] lut) {
+    public void setLut(PackedLUT lut) {
         this.lut = lut;
+        bandsImage = null;
         repaint();
     }
 
-    public int[][] getLut() {
+    public PackedLUT getLut() {
         return lut;
     }
 
+    // One row per band; larger LUTs are resampled, the panel is never that wide anyway
+    private Image bandsImage() {
+        if (bandsImage != null) return bandsImage;
+        PackedLUT row = lut.resample(Math.min(lut.size(), MAX_CACHE_WIDTH));
+        int n = row.size();
+        BufferedImage img = new BufferedImage(n, 3, BufferedImage.TYPE_INT_RGB);
+        int[] px = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        int[] normal = row.toPackedArray(), sim = new int[n];
+        System.arraycopy(normal, 0, px, 0, n);
+        ColorBlindSimulator.DEUTERANOPIA.simulate(normal, sim, n);
+        System.arraycopy(sim, 0, px, n, n);
+        ColorBlindSimulator.TRITANOPIA.simulate(normal, sim, n);
+        System.arraycopy(sim, 0, px, 2 * n, n);
+
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null || GraphicsEnvironment.isHeadless()) {
+            bandsImage = img;
+        } else {
+            // Managed image in the screen format: Java2D can keep it in video memory between paints
+            BufferedImage compatible = gc.createCompatibleImage(n, 3);
+            Graphics2D g = compatible.createGraphics();
+            g.drawImage(img, 0, 0, null);
+            g.dispose();
+            bandsImage = compatible;
+        }
+        return bandsImage;
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
@@ -32,22 +72,19 @@ public class LUTPreviewPanel extends JPanel {
         int bh = bandHeight;
         int gap = 7;
         int[] ys = {0, bh + gap, 2 * (bh + gap)};
+        Image bands = bandsImage();
+        int n = bands.getWidth(null);
 
-        // Draw each band
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        FontMetrics fm = g2.getFontMetrics();
         for (int j = 0; j < 3; j++) {
-            for (int i = 0; i < lut.length; i++) {
-                int[] rgb = (j == 0) ? lut[i]
-                        : (j == 1) ? DaltonizeUtils.rgbDeuteranope(lut[i])
-                        : DaltonizeUtils.rgbTritanope(lut[i]);
-                g.setColor(new Color(rgb[0], rgb[1], rgb[2]));
-                int x = i * w / lut.length;
-                g.fillRect(x, ys[j], w / lut.length + 1, bh);
-            }
+            // Draw band j scaled to the panel width
+            g2.drawImage(bands, 0, ys[j], w, ys[j] + bh, 0, j, n, j + 1, null);
+
             // Draw band label with white box behind for readability
             int labelY = ys[j] + bh / 2 + 5;
-            Graphics2D g2 = (Graphics2D) g;
             String label = LABELS[j];
-            FontMetrics fm = g2.getFontMetrics();
             int labelW = fm.stringWidth(label) + 8;
             int labelH = fm.getHeight();
             g2.setColor(Color.WHITE);
@@ -0,0 +1,117 @@
+package io.github.rocsg.fijilutmaker.ui;
+
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.ColormapSnapshot;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import io.github.rocsg.fijilutmaker.utils.InterpolationPlan;
+
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Moves LUT generation and test image remapping off the EDT.
+ * Each request takes an immutable snapshot of the colormap on the EDT (the only step that reads the mutable
+ * model), then a single worker thread compiles it, evaluates the LUT and remaps the test image. Both steps are incremental:
+ * only the LUT range changed since the previous job and the pixels whose color changed are recomputed.
+ * Bursts of requests are coalesced: only the latest pending request is computed, and a running job is
+ * abandoned as soon as a newer one arrives.
+ * Results are published to the preview and test image panels together in one EDT runnable, then to the
+ * LUT listeners (e.g. other previews of the same colormap).
+ */
+public class LUTRenderScheduler {
+
+    private final LUTPreviewPanel lutPreview;
+    private final TestImagePanel testImagePanel;
+    private final ExecutorService worker;
+    private final AtomicLong latestGeneration = new AtomicLong();
+    private final AtomicReference<Job> pending = new AtomicReference<>();
+    private final List<Consumer<PackedLUT>> lutListeners = new CopyOnWriteArrayList<>();
+    private ColormapSnapshot lastRequested;     // EDT only
+    // Worker thread only: last computed LUT and its plan, to regenerate just the changed range
+    private InterpolationPlan lastPlan;
+    private PackedLUT lastLut;
+
+    public LUTRenderScheduler(LUTPreviewPanel lutPreview, TestImagePanel testImagePanel) {
+        this.lutPreview = lutPreview;
+        this.testImagePanel = testImagePanel;
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "FijiLUTMaker-render");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Schedule a render of the colormap's current state. Must be called on the EDT (or the thread editing the model).
+     * Requests for an unmodified colormap are ignored.
+     */
+    public void requestRender(Colormap colormap) {
+        ColormapSnapshot snapshot = colormap.snapshot();
+        if (snapshot == lastRequested) return; // nothing changed
+        lastRequested = snapshot;
+        Job job = new Job(latestGeneration.incrementAndGet(), snapshot);
+        if (pending.getAndSet(job) == null) worker.execute(this::drain);
+    }
+
+    /** Listener called on the EDT with each published LUT. */
+    public void addLutListener(Consumer<PackedLUT> listener) {
+        lutListeners.add(listener);
+    }
+
+    /** Stop the worker thread; pending requests are dropped. */
+    public void dispose() {
+        worker.shutdownNow();
+    }
+
+    // ---- Worker side ----
+
+    private void drain() {
+        Job job;
+        while ((job = pending.getAndSet(null)) != null) run(job);
+    }
+
+    private void run(Job job) {
+        if (job.isStale()) return;
+        PackedLUT lut = generate(job);
+        if (job.isStale()) return;
+        TestImagePanel.Frame frame = (testImagePanel == null) ? null : testImagePanel.renderOffscreen(lut, job::isStale);
+        if (testImagePanel != null && frame == null) return; // cancelled
+        SwingUtilities.invokeLater(() -> publish(job, lut, frame));
+    }
+
+    private PackedLUT generate(Job job) {
+        InterpolationPlan plan = job.snapshot.compilePlan();
+        lastLut = PackedLUT.regenerate(lastLut, lastPlan, plan, job.snapshot.getLutSize());
+        lastPlan = plan;
+        return lastLut;
+    }
+
+    // EDT: both panels are updated in the same runnable, or not at all if a newer job exists
+    private void publish(Job job, PackedLUT lut, TestImagePanel.Frame frame) {
+        if (job.isStale()) {
+            if (testImagePanel != null) testImagePanel.recycle(frame);
+            return;
+        }
+        lutPreview.setLut(lut);
+        if (testImagePanel != null) testImagePanel.showRendered(lut, frame);
+        for (Consumer<PackedLUT> l : lutListeners) l.accept(lut);
+    }
+
+    private class Job {
+        final long generation;
+        final ColormapSnapshot snapshot;
+
+        Job(long generation, ColormapSnapshot snapshot) {
+            this.generation = generation;
+            this.snapshot = snapshot;
+        }
+
+        boolean isStale() { return generation != latestGeneration.get(); }
+    }
+}
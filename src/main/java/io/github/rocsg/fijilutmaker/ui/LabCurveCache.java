@@ -0,0 +1,127 @@
+package io.github.rocsg.fijilutmaker.ui;
+
+import io.github.rocsg.fijilutmaker.utils.InterpolationPlan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Adaptively sampled L, a, b curves of a colormap (the Lab of the colors it actually produces).
+ * Each segment between consecutive control points is sampled uniformly, then intervals are split at their
+ * midpoint while the midpoint deviates from the chord by more than TOLERANCE (as a fraction of the channel's
+ * range, i.e. of the plot height), so samples are dense where the curves bend and sparse where they are straight.
+ * Samples are kept per segment: an update only resamples the segments whose end points moved or that
+ * intersect a given position range, and reuses the others.
+ */
+final class LabCurveCache {
+
+    static final double TOLERANCE = 0.004;
+    static final int INITIAL_INTERVALS = 4;
+    static final int MAX_DEPTH = 6;
+    private static final double[] RANGE = {100.0, 256.0, 256.0};
+
+    static final class Segment {
+        final double t0, t1;
+        final double[] t;
+        final float[] lab; // interleaved L, a, b
+
+        Segment(double t0, double t1, double[] t, float[] lab) {
+            this.t0 = t0; this.t1 = t1; this.t = t; this.lab = lab;
+        }
+    }
+
+    private List<Segment> segments = new ArrayList<>();
+    private int resampled;
+
+    /**
+     * Bring the curves up to date with plan. Segments whose end points are unchanged and which do not
+     * intersect (from, to) are reused; pass (0, 1) to resample everything.
+     */
+    void update(InterpolationPlan plan, double from, double to) {
+        double[] knots = plan.getKnots();
+        List<Double> bounds = new ArrayList<>();
+        bounds.add(0.0);
+        for (double k : knots) if (k > bounds.get(bounds.size() - 1) && k < 1) bounds.add(k);
+        bounds.add(1.0);
+
+        List<Segment> old = segments, next = new ArrayList<>(bounds.size() - 1);
+        int o = 0;
+        resampled = 0;
+        for (int s = 0; s + 1 < bounds.size(); s++) {
+            double t0 = bounds.get(s), t1 = bounds.get(s + 1);
+            while (o < old.size() && old.get(o).t0 < t0) o++;
+            Segment reuse = (o < old.size() && old.get(o).t0 == t0 && old.get(o).t1 == t1) ? old.get(o) : null;
+            if (reuse != null && (t1 <= from || t0 >= to)) {
+                next.add(reuse);
+            } else {
+                next.add(sample(plan, t0, t1));
+                resampled++;
+            }
+        }
+        segments = next;
+    }
+
+    List<Segment> getSegments() { return segments; }
+
+    /** Number of segments resampled by the last update. */
+    int getResampledCount() { return resampled; }
+
+    /** Total number of samples over all segments (segment ends are shared, counted once per segment). */
+    int sampleCount() {
+        int n = 0;
+        for (Segment s : segments) n += s.t.length;
+        return n;
+    }
+
+    static Segment sample(InterpolationPlan plan, double t0, double t1) {
+        int n = INITIAL_INTERVALS + 1;
+        double[] t = new double[n];
+        for (int k = 0; k < n; k++) t[k] = t0 + (t1 - t0) * k / INITIAL_INTERVALS;
+        t[n - 1] = t1;
+        float[] lab = new float[3 * n];
+        plan.evaluateLab(t, lab, n);
+        boolean[] refine = new boolean[n - 1];
+        Arrays.fill(refine, true);
+
+        for (int depth = 0; depth < MAX_DEPTH; depth++) {
+            int m = 0;
+            for (boolean r : refine) if (r) m++;
+            if (m == 0) break;
+            // Midpoints of the intervals to refine, evaluated in one batch
+            double[] mids = new double[m];
+            for (int i = 0, k = 0; i < n - 1; i++) if (refine[i]) mids[k++] = 0.5 * (t[i] + t[i + 1]);
+            float[] midLab = new float[3 * m];
+            plan.evaluateLab(mids, midLab, m);
+
+            double[] t2 = new double[n + m];
+            float[] lab2 = new float[3 * (n + m)];
+            boolean[] refine2 = new boolean[n + m - 1];
+            int j = 0;
+            for (int i = 0, k = 0; i < n; i++) {
+                t2[j] = t[i];
+                System.arraycopy(lab, 3 * i, lab2, 3 * j, 3);
+                j++;
+                if (i < n - 1 && refine[i]) {
+                    t2[j] = mids[k];
+                    System.arraycopy(midLab, 3 * k, lab2, 3 * j, 3);
+                    boolean bends = deviation(lab, 3 * i, 3 * (i + 1), midLab, 3 * k) > TOLERANCE;
+                    refine2[j - 1] = bends;
+                    refine2[j] = bends;
+                    k++;
+                    j++;
+                }
+            }
+            t = t2; lab = lab2; refine = refine2; n = n + m;
+        }
+        return new Segment(t0, t1, t, lab);
+    }
+
+    // Largest distance between the midpoint and the chord, over the three channels, as a fraction of their range
+    private static double deviation(float[] lab, int a, int b, float[] mid, int m) {
+        double d = 0;
+        for (int c = 0; c < 3; c++)
+            d = Math.max(d, Math.abs(mid[m + c] - 0.5 * (lab[a + c] + lab[b + c])) / RANGE[c]);
+        return d;
+    }
+}
@@ -2,21 +2,55 @@ package io.github.rocsg.fijilutmaker.ui;
 
 import io.github.rocsg.fijilutmaker.model.Colormap;
 import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.ColormapSnapshot;
+import io.github.rocsg.fijilutmaker.utils.InterpolationPlan;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Lab curves of the colormap, with one draggable handle per control point and channel.
+ * The curves are the L, a, b of the interpolated colors (so spline and LCH trajectories are shown as they are),
+ * adaptively sampled by a LabCurveCache that only resamples the segments an edit can change. While a handle
+ * is dragged in a spline mode, only the segments next to it are resampled; the whole curve is refreshed on release.
+ * Sampling runs on a worker thread, from a colormap snapshot taken on the EDT (like LUTRenderScheduler): the plan is
+ * compiled there too, and the sampled segments are published back to the EDT. Pending requests are coalesced.
+ * Handle coordinates and the curve paths are kept in a Geometry, rebuilt only when the colormap
+ * (modification count), the published curves or the panel size change; hover and hit testing use it without
+ * colorimetry, through a binary search on the handles sorted by x.
+ */
 public class LabCurvesPanel extends JPanel implements ColormapEditorPanel.ColormapChangeListener {
     private final Colormap colormap;
     private static final int PAD_X = 28, PAD_Y = 28;
     private static final int HANDLE_RADIUS = 7;
+    private static final int HIT_DISTANCE = 18;
     private int selectedPoint = -1;     // index du point drag
     private int selectedChannel = 0;    // 0: L, 1: a, 2: b
     private int hoverPoint = -1;        // -1 sinon
     private int hoverChannel = 0;
     private boolean dragging = false;
+    private Geometry geometry;
+    private List<LabCurveCache.Segment> segments = Collections.emptyList(); // last published curves (EDT)
+    private ColormapSnapshot lastRequested;                                 // EDT only
+    private final AtomicReference<CurveJob> pending = new AtomicReference<>();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "FijiLUTMaker-curves");
+        t.setDaemon(true);
+        return t;
+    });
+    // Worker thread only: sampled curves, the plan they come from, and whether a drag left them approximate
+    private final LabCurveCache curveCache = new LabCurveCache();
+    private InterpolationPlan curvePlan;
+    private boolean approximate;
+    private static final int CHANGE_STEPS = 1 << 16; // resolution of the changed range of linear modes
 
     private static final Color[] CURVE_COLORS = {new Color(70,160,255), new Color(230,80,80), new Color(60,180,60)};
     private static final String[] CURVE_LABELS = {"L", "a", "b"};
@@ -47,11 +81,15 @@ public class LabCurvesPanel extends JPanel implements ColormapEditorPanel.Colorm
             }
             @Override
             public void mouseReleased(MouseEvent e) {
-                if (dragging) {
-                    fireColormapChanged(); // Notifie tous les listeners (synchronise la LUT)
-                }
+                boolean wasDragging = dragging;
                 dragging = false;
                 selectedPoint = -1;
+                if (wasDragging) {
+                    // Splines were only refreshed next to the dragged handle: resample everything
+                    requestCurves(true);
+                    repaint();
+                    fireColormapChanged(); // Notifie tous les listeners (synchronise la LUT)
+                }
             }
             @Override
             public void mouseClicked(MouseEvent e) {
@@ -65,8 +103,7 @@ public class LabCurvesPanel extends JPanel implements ColormapEditorPanel.Colorm
             }
             @Override
             public void mouseExited(MouseEvent e) {
-                hoverPoint = -1;
-                repaint();
+                setHover(-1, hoverChannel);
             }
         });
 
@@ -74,9 +111,7 @@ public class LabCurvesPanel extends JPanel implements ColormapEditorPanel.Colorm
             @Override
             public void mouseMoved(MouseEvent e) {
                 Point2D closest = getClosestHandle(e.getX(), e.getY());
-                hoverPoint = closest.index;
-                hoverChannel = closest.channel;
-                repaint();
+                setHover(closest.index, closest.channel);
             }
             @Override
             public void mouseDragged(MouseEvent e) {
@@ -109,20 +144,17 @@ public class LabCurvesPanel extends JPanel implements ColormapEditorPanel.Colorm
         });
     }
 
-    // Helper interne : point + channel le plus proche de la souris
+    // Helper interne : point + channel le plus proche de la souris (à distance égale, le premier canal puis point)
     private Point2D getClosestHandle(int mx, int my) {
-        List<ColorPoint> pts = colormap.getPoints();
-        int w = getWidth() - 2 * PAD_X;
-        int h = getHeight() - 2 * PAD_Y;
-        double minDist = 18;
+        Geometry geo = geometry();
+        double minDist = HIT_DISTANCE;
         int minIdx = -1, minCh = 0;
-        for (int ch = 0; ch < 3; ch++) {
-            for (int i = 0; i < pts.size(); i++) {
-                double px = PAD_X + pts.get(i).getPosition() * w;
-                float[] lab = pts.get(i).getLab();
-                double py = PAD_Y + (MAXVAL[ch] - lab[ch]) * h / (MAXVAL[ch] - MINVAL[ch]);
-                double d = Math.hypot(mx - px, my - py);
-                if (d < minDist) {
+        // Only the handles within HIT_DISTANCE horizontally can be hit
+        for (int k = geo.firstAtOrAfter(mx - HIT_DISTANCE); k < geo.order.length && geo.sortedX[k] <= mx + HIT_DISTANCE; k++) {
+            int i = geo.order[k];
+            for (int ch = 0; ch < 3; ch++) {
+                double d = Math.hypot(mx - geo.x[i], my - geo.y[ch][i]);
+                if (d < minDist || (d == minDist && minIdx >= 0 && (ch < minCh || (ch == minCh && i < minIdx)))) {
                     minDist = d;
                     minIdx = i;
                     minCh = ch;
@@ -132,34 +164,177 @@ public class LabCurvesPanel extends JPanel implements ColormapEditorPanel.Colorm
         return new Point2D(minIdx, minCh);
     }
 
+    // Repaint only when the highlighted handle changes, and only around the old and new handles
+    private void setHover(int idx, int ch) {
+        if (idx == hoverPoint && (idx < 0 || ch == hoverChannel)) return;
+        repaintHandle(hoverPoint, hoverChannel);
+        hoverPoint = idx;
+        hoverChannel = ch;
+        repaintHandle(hoverPoint, hoverChannel);
+    }
+
+    private void repaintHandle(int idx, int ch) {
+        Geometry geo = geometry();
+        if (idx < 0 || idx >= geo.x.length) return;
+        int r = HANDLE_RADIUS + 4;
+        repaint((int) geo.x[idx] - r, (int) geo.y[ch][idx] - r, 2 * r + 1, 2 * r + 1);
+    }
+
+    /**
+     * Handle positions and curve paths for the current colormap state and panel size.
+     * The curves are the last ones published by the worker: they catch up with the model asynchronously.
+     */
+    private Geometry geometry() {
+        long version = colormap.getModificationCount();
+        int w = getWidth() - 2 * PAD_X, h = getHeight() - 2 * PAD_Y;
+        requestCurves(false);
+        if (geometry == null || geometry.version != version || geometry.segments != segments
+                || geometry.w != w || geometry.h != h) {
+            geometry = new Geometry(colormap.getPoints(), segments, version, w, h);
+        }
+        return geometry;
+    }
+
+    // EDT: schedule the sampling of the current state (ignored if already requested, unless forced)
+    private void requestCurves(boolean force) {
+        ColormapSnapshot snapshot = colormap.snapshot();
+        if (snapshot == lastRequested && !force) return;
+        lastRequested = snapshot;
+        double dragFrom = -1, dragTo = -1;
+        List<ColorPoint> pts = colormap.getPoints();
+        if (dragging && selectedPoint >= 0 && selectedPoint < pts.size()) {
+            dragFrom = (selectedPoint > 0) ? pts.get(selectedPoint - 1).getPosition() : 0;
+            dragTo = (selectedPoint < pts.size() - 1) ? pts.get(selectedPoint + 1).getPosition() : 1;
+        }
+        if (pending.getAndSet(new CurveJob(snapshot, dragFrom, dragTo)) == null) worker.execute(this::drain);
+    }
+
+    // ---- Worker side ----
+
+    private void drain() {
+        CurveJob job;
+        while ((job = pending.getAndSet(null)) != null) sampleCurves(job);
+    }
+
+    // Resample the curve segments the change since the last job can affect, then publish them to the EDT
+    private void sampleCurves(CurveJob job) {
+        InterpolationPlan plan = job.snapshot.compilePlan();
+        boolean drag = job.dragFrom >= 0;
+        if (plan == curvePlan && (drag || !approximate)) return;
+        double from = 0, to = 1;
+        if (curvePlan != null && drag && plan.hasGlobalSupport()) {
+            // Live drag in a spline mode: approximate by refreshing the segments around the handle only
+            from = job.dragFrom;
+            to = job.dragTo;
+            approximate = true;
+        } else if (curvePlan != null && !approximate) {
+            int[] r = plan.changedRange(curvePlan, CHANGE_STEPS);
+            from = r[0] / (CHANGE_STEPS - 1.0);
+            to = (r[1] - 1) / (CHANGE_STEPS - 1.0);
+        } else {
+            approximate = false;
+        }
+        curveCache.update(plan, from, to);
+        curvePlan = plan;
+        List<LabCurveCache.Segment> sampled = curveCache.getSegments(); // never modified after update
+        SwingUtilities.invokeLater(() -> {
+            segments = sampled;
+            repaint();
+        });
+    }
+
+    /** Stop the sampling thread; pending requests are dropped. */
+    public void dispose() {
+        worker.shutdownNow();
+    }
+
+    private static final class CurveJob {
+        final ColormapSnapshot snapshot;
+        final double dragFrom, dragTo; // neighbours of the dragged point, -1 when not dragging
+
+        CurveJob(ColormapSnapshot snapshot, double dragFrom, double dragTo) {
+            this.snapshot = snapshot;
+            this.dragFrom = dragFrom;
+            this.dragTo = dragTo;
+        }
+    }
+
+    private static final class Geometry {
+        final long version;
+        final List<LabCurveCache.Segment> segments;
+        final int w, h;
+        final double[] x;          // handle x of each point
+        final double[][] y;        // handle y of each point, per channel
+        final Path2D[] curves;     // interpolated L, a, b
+        final int[] order;         // point indices sorted by x
+        final double[] sortedX;
+
+        Geometry(List<ColorPoint> pts, List<LabCurveCache.Segment> segments, long version, int w, int h) {
+            this.version = version;
+            this.segments = segments;
+            this.w = w;
+            this.h = h;
+            int n = pts.size();
+            x = new double[n];
+            y = new double[3][n];
+            for (int i = 0; i < n; i++) {
+                ColorPoint p = pts.get(i);
+                float[] lab = p.getLab();
+                x[i] = PAD_X + p.getPosition() * w;
+                for (int ch = 0; ch < 3; ch++)
+                    y[ch][i] = PAD_Y + (MAXVAL[ch] - lab[ch]) * h / (MAXVAL[ch] - MINVAL[ch]);
+            }
+            curves = new Path2D[3];
+            for (int ch = 0; ch < 3; ch++) {
+                Path2D.Double path = new Path2D.Double();
+                double scale = h / (MAXVAL[ch] - MINVAL[ch]);
+                boolean first = true;
+                for (LabCurveCache.Segment seg : segments) {
+                    // Segments share their end samples
+                    for (int k = first ? 0 : 1; k < seg.t.length; k++) {
+                        double px = PAD_X + seg.t[k] * w, py = PAD_Y + (MAXVAL[ch] - seg.lab[3 * k + ch]) * scale;
+                        if (first) { path.moveTo(px, py); first = false; } else path.lineTo(px, py);
+                    }
+                }
+                curves[ch] = path;
+            }
+            Integer[] idx = new Integer[n];
+            for (int i = 0; i < n; i++) idx[i] = i;
+            Arrays.sort(idx, (a, b) -> Double.compare(x[a], x[b]));
+            order = new int[n];
+            sortedX = new double[n];
+            for (int k = 0; k < n; k++) { order[k] = idx[k]; sortedX[k] = x[idx[k]]; }
+        }
+
+        int firstAtOrAfter(double v) {
+            int lo = 0, hi = sortedX.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sortedX[mid] < v) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        List<ColorPoint> pts = colormap.getPoints();
-        int n = pts.size();
-        int w = getWidth() - 2 * PAD_X;
-        int h = getHeight() - 2 * PAD_Y;
+        Geometry geo = geometry();
+        int n = geo.x.length;
+        int w = geo.w;
+        int h = geo.h;
         Graphics2D g2 = (Graphics2D) g;
         g2.setStroke(new BasicStroke(2.2f));
         // Draw curves
         for (int ch = 0; ch < 3; ch++) {
             g2.setColor(CURVE_COLORS[ch]);
-            for (int i = 0; i < n - 1; i++) {
-                int x1 = PAD_X + (int) (pts.get(i).getPosition() * w);
-                int x2 = PAD_X + (int) (pts.get(i + 1).getPosition() * w);
-                float[] lab1 = pts.get(i).getLab();
-                float[] lab2 = pts.get(i + 1).getLab();
-                int y1 = PAD_Y + (int) ((MAXVAL[ch] - lab1[ch]) * h / (MAXVAL[ch] - MINVAL[ch]));
-                int y2 = PAD_Y + (int) ((MAXVAL[ch] - lab2[ch]) * h / (MAXVAL[ch] - MINVAL[ch]));
-                g2.drawLine(x1, y1, x2, y2);
-            }
+            g2.draw(geo.curves[ch]);
         }
         // Draw handles for all points
         for (int ch = 0; ch < 3; ch++) {
             for (int i = 0; i < n; i++) {
-                double px = PAD_X + pts.get(i).getPosition() * w;
-                float[] lab = pts.get(i).getLab();
-                double py = PAD_Y + (MAXVAL[ch] - lab[ch]) * h / (MAXVAL[ch] - MINVAL[ch]);
+                double px = geo.x[i];
+                double py = geo.y[ch][i];
                 g2.setColor(CURVE_COLORS[ch]);
                 g2.fillOval((int) px - HANDLE_RADIUS, (int) py - HANDLE_RADIUS, HANDLE_RADIUS * 2, HANDLE_RADIUS * 2);
                 // Highlight selected or hovered handle
@@ -29,23 +29,22 @@ public class MainFrame extends JFrame {
 
         // Synchronisation bidirectionnelle (chaque panel écoute les changements de l'autre)
         lutPanel.addColormapChangeListener(curvesPanel);
-//        curvesPanel.addColormapChangeListener(lutPanel);
+        curvesPanel.addColormapChangeListener(lutPanel::updateColormap);
 
         // --- Optionally, Preview Panel(s) ---
-        LUTPreviewPanel previewPanel = new LUTPreviewPanel(colormap.generateLUT());
+        // Mis à jour avec chaque LUT calculée en arrière-plan par l'éditeur
+        LUTPreviewPanel previewPanel = new LUTPreviewPanel(colormap.generatePackedLUT());
+        lutPanel.addLutListener(previewPanel::setLut);
+        lutPanel.updateColormap(); // premier rendu de l'image test
         // Tu ajouteras plus tard la version multi-daltonienne ici
 
-        JPanel testImagePanel = new TestImagePanel(); // Pour la preview image, si dispo
-
         // --- Autres Panels (espace réservé) ---
         JPanel colorPickerPanel = new JPanel() {{
             setPreferredSize(new Dimension(200, 100));
             setBorder(BorderFactory.createTitledBorder("Color Picker"));
         }};
-        JPanel imageStackPanel = new JPanel() {{
-            setPreferredSize(new Dimension(200, 200));
-            setBorder(BorderFactory.createTitledBorder("Image Stack"));
-        }};
+        ImageStackPanel imageStackPanel = new ImageStackPanel(colormap);
+        imageStackPanel.setPreferredSize(new Dimension(200, 200));
         JPanel settingsPanel = new JPanel() {{
             setPreferredSize(new Dimension(200, 40));
             setBorder(BorderFactory.createTitledBorder("Settings"));
@@ -64,7 +63,7 @@ public class MainFrame extends JFrame {
 
         JPanel previewStack = new JPanel(new GridLayout(2, 1));
         previewStack.add(previewPanel);
-        previewStack.add(testImagePanel);
+        previewStack.add(testPanel);
 
         JPanel rightPanel = new JPanel(new BorderLayout());
         rightPanel.add(editorPanel, BorderLayout.CENTER);
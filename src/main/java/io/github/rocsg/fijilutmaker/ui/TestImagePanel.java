@@ -1,6 +1,7 @@
 package io.github.rocsg.fijilutmaker.ui;
 
-import io.github.rocsg.fijilutmaker.color.DaltonizeUtils;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import io.github.rocsg.fijilutmaker.render.LUTApplier;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -8,16 +9,31 @@ import java.awt.*;
 import java.awt.image.*;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 public class TestImagePanel extends JPanel implements ColormapEditorPanel.ColormapChangeListener {
-    private BufferedImage testImg;        // grayscale input
-    private BufferedImage[] mappedImgs;   // [0]=normal, [1]=deut, [2]=trit
-    private int[][] lut;                  // currently applied LUT
+    private final BufferedImage testImg;  // grayscale input (never modified after loading)
+    private final LUTApplier.PixelIndex pixelIndex; // pixels of testImg grouped by value
+    private Frame front;                  // displayed images
+    private PackedLUT lut;                // currently applied LUT
+    // Back buffers for background rendering: handed to the worker, given back when replaced on screen
+    private final AtomicReference<Frame> spare = new AtomicReference<>();
+
+    /**
+     * The three renderings ([0]=normal, [1]=deut, [2]=trit) and the table they were made with,
+     * so that the next render only rewrites pixels whose color changed.
+     */
+    public static final class Frame {
+        private final BufferedImage[] imgs = new BufferedImage[LUTApplier.VIEWS];
+        private int[] table; // LUTApplier NORMAL table of the current content, null if empty
+    }
 
     public TestImagePanel() {
         setPreferredSize(new Dimension(256*3 + 30, 110));
         testImg = loadTestImage();
-        mappedImgs = new BufferedImage[3];
+        pixelIndex = new LUTApplier.PixelIndex(testImg);
+        front = new Frame();
         applyLut(null); // Render as grayscale at startup
     }
 
@@ -34,29 +50,52 @@ public class TestImagePanel extends JPanel implements ColormapEditorPanel.Colorm
         return img;
     }
 
-    // Applique la LUT sur testImg et pré-calcule les 3 rendus
-    public void applyLut(int[][] lut) {
+    // Applique la LUT sur testImg (seuls les pixels dont la couleur change sont réécrits)
+    public void applyLut(PackedLUT lut) {
         this.lut = lut;
         if (testImg == null) return;
-        int w = testImg.getWidth(), h = testImg.getHeight();
-        mappedImgs = new BufferedImage[3];
-        for (int v = 0; v < 3; v++)
-            mappedImgs[v] = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        render(front, LUTApplier.forImage(lut, testImg), () -> false);
+        repaint();
+    }
 
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int val = (testImg.getRaster().getSample(x, y, 0)); // [0,255]
-                int[] rgb = lut == null ? new int[]{val, val, val} : lut[val];
-                mappedImgs[0].setRGB(x, y, new Color(rgb[0], rgb[1], rgb[2]).getRGB());
-                int[] deut = DaltonizeUtils.rgbDeuteranope(rgb);
-                mappedImgs[1].setRGB(x, y, new Color(deut[0], deut[1], deut[2]).getRGB());
-                int[] trit = DaltonizeUtils.rgbTritanope(rgb);
-                mappedImgs[2].setRGB(x, y, new Color(trit[0], trit[1], trit[2]).getRGB());
-            }
+    /**
+     * Render lut into back buffers, from any thread (see LUTRenderScheduler).
+     * Returns null if cancelled; the result must then be passed to {@link #showRendered} on the EDT.
+     */
+    public Frame renderOffscreen(PackedLUT lut, BooleanSupplier cancelled) {
+        Frame out = spare.getAndSet(null);
+        if (out == null) out = new Frame();
+        if (!render(out, LUTApplier.forImage(lut, testImg), cancelled)) {
+            recycle(out);
+            return null;
         }
+        return out;
+    }
+
+    /**
+     * Display a frame produced by renderOffscreen (EDT only). The previous frame becomes the back buffer.
+     */
+    public void showRendered(PackedLUT lut, Frame frame) {
+        Frame old = front;
+        this.lut = lut;
+        this.front = frame;
+        recycle(old);
         repaint();
     }
 
+    /** Give back a frame from a render that will not be shown. */
+    public void recycle(Frame frame) {
+        if (frame != null) spare.set(frame);
+    }
+
+    private boolean render(Frame frame, LUTApplier applier, BooleanSupplier cancelled) {
+        int[] previous = frame.table;
+        frame.table = null; // content is undefined until the render completes
+        if (!applier.update(testImg, pixelIndex, previous, frame.imgs, cancelled)) return false;
+        frame.table = applier.getTable(LUTApplier.NORMAL);
+        return true;
+    }
+
     // Listener: appelé quand la colormap change (à connecter)
     @Override
     public void colormapChanged() {
@@ -66,7 +105,7 @@ public class TestImagePanel extends JPanel implements ColormapEditorPanel.Colorm
     }
 
     // Permet d'actualiser la LUT depuis l'extérieur
-    public void setLut(int[][] lut) {
+    public void setLut(PackedLUT lut) {
         applyLut(lut);
     }
 
@@ -76,8 +115,8 @@ public class TestImagePanel extends JPanel implements ColormapEditorPanel.Colorm
         int pad = 5, bandW = getWidth() / 3, h = getHeight() - 22;
         String[] labels = {"Normal", "Deut.", "Trit."};
         for (int i = 0; i < 3; i++) {
-            if (mappedImgs[i] != null)
-                g.drawImage(mappedImgs[i], i*bandW+pad, 18, bandW-2*pad, h, null);
+            if (front.imgs[i] != null)
+                g.drawImage(front.imgs[i], i*bandW+pad, 18, bandW-2*pad, h, null);
             g.setColor(Color.BLACK);
             g.drawString(labels[i], i*bandW + pad + 8, 15);
         }
@@ -0,0 +1,282 @@
+package io.github.rocsg.fijilutmaker.utils;
+
+import io.github.rocsg.fijilutmaker.color.ColorUtils;
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.ColormapSnapshot;
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+import org.apache.commons.math3.analysis.interpolation.SplineInterpolator;
+import org.apache.commons.math3.analysis.polynomials.PolynomialFunction;
+import org.apache.commons.math3.analysis.polynomials.PolynomialSplineFunction;
+import java.util.List;
+
+/**
+ * Compiled interpolation for a set of color points and an interpolation mode.
+ * Knot positions, per-channel values (RGB, Lab or LCH) and spline coefficients are
+ * computed once at construction; evaluation then only looks up the segment and
+ * evaluates a polynomial. Results are identical to the per-sample methods of {@link Interpolator}.
+ */
+public class InterpolationPlan {
+
+    private static final int RGB = 0, LAB = 1, LCH = 2;
+
+    private final InterpolationMode mode;
+    private final int space;
+    private final boolean spline;
+    private final double[] knots;
+    private final double[][] values;     // [channel][point], hue in radians for LCH
+    private final double[][][] coeffs;   // [channel][segment][coefficient], spline modes only
+
+    /**
+     * Compiles a plan. Points must be sorted by position (see Colormap).
+     */
+    public InterpolationPlan(List<ColorPoint> sortedPoints, InterpolationMode mode) {
+        this(toSnapshotPoints(sortedPoints), mode);
+    }
+
+    /**
+     * Compiles the plan of a snapshot, using its precomputed Lab/LCH. Safe to call from any thread.
+     */
+    public InterpolationPlan(ColormapSnapshot snapshot) {
+        this(snapshot.getPoints().toArray(new ColormapSnapshot.Point[0]), snapshot.getInterpolationMode());
+    }
+
+    private InterpolationPlan(ColormapSnapshot.Point[] sortedPoints, InterpolationMode mode) {
+        this.mode = mode;
+        int n = sortedPoints.length;
+        switch (mode) {
+            case LINEAR_LAB: case SPLINE_LAB: space = LAB; break;
+            case LINEAR_LCH: case SPLINE_LCH: space = LCH; break;
+            default:                          space = RGB; break;
+        }
+        boolean splineMode = mode == InterpolationMode.SPLINE_RGB
+                || mode == InterpolationMode.SPLINE_LAB || mode == InterpolationMode.SPLINE_LCH;
+        this.spline = splineMode && n > 2;
+
+        knots = new double[n];
+        values = new double[3][n];
+        for (int i = 0; i < n; i++) {
+            ColormapSnapshot.Point p = sortedPoints[i];
+            knots[i] = p.getPosition();
+            if (space == RGB) {
+                values[0][i] = p.red();
+                values[1][i] = p.green();
+                values[2][i] = p.blue();
+            } else if (space == LAB) {
+                for (int c = 0; c < 3; c++) values[c][i] = p.lab(c);
+            } else {
+                values[0][i] = p.lch(0);
+                values[1][i] = p.lch(1);
+                values[2][i] = Math.toRadians(p.lch(2));
+            }
+        }
+
+        if (spline) {
+            coeffs = new double[3][][];
+            for (int c = 0; c < 3; c++) {
+                double[] y = values[c];
+                if (space == LCH && c == 2) y = unwrap(y);
+                PolynomialSplineFunction f = new SplineInterpolator().interpolate(knots, y);
+                PolynomialFunction[] polys = f.getPolynomials();
+                coeffs[c] = new double[polys.length][];
+                for (int s = 0; s < polys.length; s++) coeffs[c][s] = polys[s].getCoefficients();
+            }
+        } else {
+            coeffs = null;
+        }
+    }
+
+    public InterpolationMode getMode() { return mode; }
+
+    /**
+     * Evaluates the colormap at t in [0,1] and returns {r, g, b} in [0,255].
+     */
+    public int[] evaluate(double t) {
+        int rgb = evaluatePacked(t);
+        return new int[] {(rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF};
+    }
+
+    /**
+     * Evaluates the colormap at t in [0,1] and returns packed RGB (0xRRGGBB).
+     */
+    public int evaluatePacked(double t) {
+        double[] ch = new double[3];
+        evaluateChannels(t, segment(t), ch);
+        return toPackedRgb(ch);
+    }
+
+    /**
+     * Evaluates n positions ts[0..n-1] (in [0,1], any order) into packedOut as packed RGB.
+     * O(log points) per position.
+     */
+    public void evaluate(double[] ts, int[] packedOut, int n) {
+        double[] ch = new double[3];
+        for (int i = 0; i < n; i++) {
+            evaluateChannels(ts[i], segment(ts[i]), ch);
+            packedOut[i] = toPackedRgb(ch);
+        }
+    }
+
+    /**
+     * Lab of the colors at positions ts[0..n-1] (any order), as interleaved {L, a, b} triplets in labOut
+     * (length >= 3n): the colors a LUT would contain, so RGB quantization and gamut clipping are included.
+     */
+    public void evaluateLab(double[] ts, float[] labOut, int n) {
+        int[] packed = new int[n];
+        evaluate(ts, packed, n);
+        ColorUtils.rgbToLab(packed, labOut, n);
+    }
+
+    /** Positions of the control points, sorted. */
+    public double[] getKnots() { return knots.clone(); }
+
+    /** True for spline modes with more than two points, whose segments all depend on every point. */
+    public boolean hasGlobalSupport() { return spline; }
+
+    /**
+     * Fills every entry of lut (lut.length samples evenly spaced on [0,1]).
+     */
+    public void fill(int[][] lut) {
+        int[] packed = new int[lut.length];
+        fill(packed);
+        for (int i = 0; i < lut.length; i++) {
+            int v = packed[i];
+            lut[i] = new int[] {(v >> 16) & 0xFF, (v >> 8) & 0xFF, v & 0xFF};
+        }
+    }
+
+    /**
+     * Fills every entry of packedLut with packed RGB (0xRRGGBB), samples evenly spaced on [0,1].
+     * Allocation-free apart from one scratch array.
+     */
+    public void fill(int[] packedLut) {
+        fill(packedLut, 0, packedLut.length);
+    }
+
+    /**
+     * Fills entries [from, to) of packedLut (positions i / (packedLut.length - 1)), leaving the others untouched.
+     */
+    public void fill(int[] packedLut, int from, int to) {
+        int size = packedLut.length;
+        double[] ch = new double[3];
+        int seg = (spline && from < to) ? splineSegment((double) from / (size - 1)) : 0;
+        Interpolator.SegmentCursor cursor = new Interpolator.SegmentCursor(knots);
+        for (int i = from; i < to; i++) {
+            double t = (double) i / (size - 1);
+            // t increases: advance the segment instead of searching again
+            if (spline) {
+                double v = Interpolator.clamp(t, knots[0], knots[knots.length - 1]);
+                while (seg < knots.length - 2 && knots[seg + 1] <= v) seg++;
+            } else {
+                seg = cursor.next(t);
+            }
+            evaluateChannels(t, seg, ch);
+            packedLut[i] = toPackedRgb(ch);
+        }
+    }
+
+    /**
+     * Range [from, to) of LUT entries (lutSize entries) that can differ between this plan and previous.
+     * Linear modes only depend on the two knots around each entry, so only the span between the last
+     * unchanged point before the edit and the first unchanged point after it is returned.
+     * Spline modes have global support: any change returns the whole range.
+     * Returns {0, 0} if the plans are equivalent, {0, lutSize} if previous is null or has another mode.
+     */
+    public int[] changedRange(InterpolationPlan previous, int lutSize) {
+        if (previous == null || previous.mode != mode) return new int[] {0, lutSize};
+        int nNew = knots.length, nOld = previous.knots.length;
+        int prefix = 0;
+        while (prefix < nNew && prefix < nOld && samePoint(previous, prefix, prefix)) prefix++;
+        if (prefix == nNew && nNew == nOld) return new int[] {0, 0};
+        if (spline || previous.spline) return new int[] {0, lutSize};
+        int suffix = 0;
+        while (suffix < nNew - prefix && suffix < nOld - prefix
+                && samePoint(previous, nNew - 1 - suffix, nOld - 1 - suffix)) suffix++;
+        int from = (prefix > 0) ? (int) Math.floor(knots[prefix - 1] * (lutSize - 1)) : 0;
+        int to = (suffix > 0) ? (int) Math.ceil(knots[nNew - suffix] * (lutSize - 1)) + 1 : lutSize;
+        return new int[] {Math.max(0, from), Math.min(lutSize, to)};
+    }
+
+    // ---- Private helpers ----
+
+    private static ColormapSnapshot.Point[] toSnapshotPoints(List<ColorPoint> points) {
+        ColormapSnapshot.Point[] out = new ColormapSnapshot.Point[points.size()];
+        for (int i = 0; i < out.length; i++) {
+            ColorPoint p = points.get(i);
+            int[] rgb = p.getRgb();
+            out[i] = new ColormapSnapshot.Point(p.getPosition(), rgb[0], rgb[1], rgb[2]);
+        }
+        return out;
+    }
+
+    private boolean samePoint(InterpolationPlan other, int i, int j) {
+        return knots[i] == other.knots[j] && values[0][i] == other.values[0][j]
+            && values[1][i] == other.values[1][j] && values[2][i] == other.values[2][j];
+    }
+
+    // seg: spline polynomial index, or for linear modes the index i of the knot ending the segment
+    private void evaluateChannels(double t, int seg, double[] out) {
+        int n = knots.length;
+        if (spline) {
+            double v = Interpolator.clamp(t, knots[0], knots[n - 1]);
+            double dx = v - knots[seg];
+            for (int c = 0; c < 3; c++) out[c] = horner(coeffs[c][seg], dx);
+            if (space == LCH) out[2] = (out[2] % (2*Math.PI) + 2*Math.PI) % (2*Math.PI);
+        } else if (t <= knots[0]) {
+            for (int c = 0; c < 3; c++) out[c] = values[c][0];
+        } else if (t >= knots[n - 1]) {
+            for (int c = 0; c < 3; c++) out[c] = values[c][n - 1];
+        } else {
+            // Same arithmetic as Interpolator.linearInterp / linearAngleInterp
+            double alpha = (t - knots[seg - 1]) / (knots[seg] - knots[seg - 1]);
+            int last = (space == LCH) ? 2 : 3;
+            for (int c = 0; c < last; c++) out[c] = values[c][seg - 1] * (1 - alpha) + values[c][seg] * alpha;
+            if (space == LCH) {
+                double a0 = values[2][seg - 1];
+                double delta = Interpolator.angleDiff(a0, values[2][seg]);
+                out[2] = (a0 + alpha * delta + 2*Math.PI) % (2*Math.PI);
+            }
+        }
+    }
+
+    private int segment(double t) {
+        return spline ? splineSegment(t) : Interpolator.findSegment(knots, t);
+    }
+
+    private int toPackedRgb(double[] ch) {
+        switch (space) {
+            case LAB:
+                return ColorUtils.labToPackedRgb(ch[0], ch[1], ch[2]);
+            case LCH:
+                double hDeg = (Math.toDegrees(ch[2]) + 360.0) % 360.0;
+                return ColorUtils.lchToPackedRgb(ch[0], ch[1], hDeg);
+            default:
+                int r = Interpolator.clamp((int) Math.round(ch[0]), 0, 255);
+                int g = Interpolator.clamp((int) Math.round(ch[1]), 0, 255);
+                int b = Interpolator.clamp((int) Math.round(ch[2]), 0, 255);
+                return (r << 16) | (g << 8) | b;
+        }
+    }
+
+    /** Same segment choice as PolynomialSplineFunction.value. */
+    private int splineSegment(double t) {
+        double v = Interpolator.clamp(t, knots[0], knots[knots.length - 1]);
+        int i = java.util.Arrays.binarySearch(knots, v);
+        if (i < 0) i = -i - 2;
+        return Math.min(i, knots.length - 2);
+    }
+
+    /** Same evaluation order as PolynomialFunction.evaluate. */
+    private static double horner(double[] c, double x) {
+        double result = c[c.length - 1];
+        for (int j = c.length - 2; j >= 0; j--) result = x * result + c[j];
+        return result;
+    }
+
+    private static double[] unwrap(double[] yRad) {
+        double[] unwrapped = new double[yRad.length];
+        unwrapped[0] = yRad[0];
+        for (int i = 1; i < yRad.length; i++)
+            unwrapped[i] = unwrapped[i-1] + Interpolator.angleDiff(unwrapped[i-1], yRad[i]);
+        return unwrapped;
+    }
+}
@@ -124,33 +124,60 @@ public class Interpolator {
     // ---- Core 1D interpolators ----
 
     /** Linear interpolation for non-angles. */
-    private static double linearInterp(double[] x, double[] y, double t) {
+    static double linearInterp(double[] x, double[] y, double t) {
         int n = x.length;
         if (t <= x[0]) return y[0];
         if (t >= x[n-1]) return y[n-1];
-        for (int i = 1; i < n; i++) {
-            if (x[i] >= t) {
-                double alpha = (t - x[i-1]) / (x[i] - x[i-1]);
-                return y[i-1]*(1-alpha) + y[i]*alpha;
-            }
-        }
-        return y[n-1];
+        int i = findSegment(x, t);
+        double alpha = (t - x[i-1]) / (x[i] - x[i-1]);
+        return y[i-1]*(1-alpha) + y[i]*alpha;
     }
 
     /** Linear interpolation for angles in radians (shortest path). */
-    private static double linearAngleInterp(double[] x, double[] yRad, double t) {
+    static double linearAngleInterp(double[] x, double[] yRad, double t) {
         int n = x.length;
         if (t <= x[0]) return yRad[0];
         if (t >= x[n-1]) return yRad[n-1];
-        for (int i = 1; i < n; i++) {
-            if (x[i] >= t) {
-                double a0 = yRad[i-1], a1 = yRad[i];
-                double delta = angleDiff(a0, a1);
-                double alpha = (t - x[i-1]) / (x[i] - x[i-1]);
-                return (a0 + alpha * delta + 2*Math.PI) % (2*Math.PI);
-            }
+        int i = findSegment(x, t);
+        double a0 = yRad[i-1], a1 = yRad[i];
+        double delta = angleDiff(a0, a1);
+        double alpha = (t - x[i-1]) / (x[i] - x[i-1]);
+        return (a0 + alpha * delta + 2*Math.PI) % (2*Math.PI);
+    }
+
+    // ---- Segment lookup ----
+
+    /**
+     * Index i of the segment [x[i-1], x[i]] containing t: the smallest i in [1, n-1] with x[i] >= t.
+     * Binary search, O(log n); x must be sorted ascending.
+     */
+    public static int findSegment(double[] x, double t) {
+        int lo = 1, hi = x.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (x[mid] >= t) hi = mid; else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    /**
+     * Segment lookup for sweeps: same result as {@link #findSegment}, but when t does not decrease
+     * between calls the search resumes from the previous segment, so a full sweep over n knots
+     * and m samples costs O(n + m). Going backwards falls back to binary search.
+     */
+    public static final class SegmentCursor {
+        private final double[] x;
+        private int seg = 1;
+        private double lastT = Double.NEGATIVE_INFINITY;
+
+        public SegmentCursor(double[] x) { this.x = x; }
+
+        public int next(double t) {
+            if (t < lastT) seg = findSegment(x, t);
+            else while (seg < x.length - 1 && x[seg] < t) seg++;
+            lastT = t;
+            return seg;
         }
-        return yRad[n-1];
     }
 
     /** Spline interpolation for non-angles. */
@@ -177,17 +204,17 @@ public class Interpolator {
     }
 
     /** Returns the minimal difference a1->a2 in radians (signed, shortest path, [-π,π]) */
-    private static double angleDiff(double a1, double a2) {
+    static double angleDiff(double a1, double a2) {
         double diff = (a2 - a1) % (2*Math.PI);
         if (diff > Math.PI) diff -= 2*Math.PI;
         if (diff < -Math.PI) diff += 2*Math.PI;
         return diff;
     }
 
-    private static int clamp(int v, int min, int max) {
+    static int clamp(int v, int min, int max) {
         return Math.max(min, Math.min(max, v));
     }
-    private static double clamp(double v, double min, double max) {
+    static double clamp(double v, double min, double max) {
         return Math.max(min, Math.min(max, v));
     }
 }
@@ -0,0 +1,69 @@
+package io.github.rocsg.fijilutmaker.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchLUTGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testDirectoryOfManifests() throws Exception {
+        Path defs = Files.createDirectory(dir.resolve("defs"));
+        Files.write(defs.resolve("a.cmap"), Arrays.asList(
+                "# comment",
+                "gray;LINEAR_RGB;256;0 #000000;1 #FFFFFF",
+                "",
+                "wide;SPLINE_LAB;4096;0 #000040;0.3 #00A0FF;1 #FFFF00"));
+        Files.write(defs.resolve("b.cmap"), Arrays.asList("small;LINEAR_LCH;16;0 #FF0000;1 #0000FF"));
+        Files.write(defs.resolve("ignored.txt"), Arrays.asList("not;a;definition"));
+        Path out = dir.resolve("out");
+
+        BatchLUTGenerator gen = new BatchLUTGenerator();
+        gen.parseArgs(new String[]{"-o", out.toString(), "-f", "lut,csv,png", "-t", "2", "--png-height", "4", defs.toString()});
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        assertTrue(gen.run(new PrintStream(log, true, "UTF-8")));
+
+        String text = log.toString("UTF-8");
+        assertTrue(text.contains("gray") && text.contains("wide") && text.contains("small"), text);
+        assertTrue(text.contains("3 colormaps (0 failed)"), text);
+
+        byte[] lut = Files.readAllBytes(out.resolve("gray.lut"));
+        assertEquals(768, lut.length);
+        assertEquals(0, lut[0]);
+        assertEquals((byte) 255, lut[255]);
+        assertEquals(768, Files.size(out.resolve("wide.lut"))); // resampled to 256 entries
+
+        assertEquals(4096 + 1, Files.readAllLines(out.resolve("wide.csv")).size());
+        assertEquals("15,0,0,255", Files.readAllLines(out.resolve("small.csv")).get(16));
+
+        BufferedImage png = ImageIO.read(out.resolve("gray.png").toFile());
+        assertEquals(256, png.getWidth());
+        assertEquals(4, png.getHeight());
+        assertEquals(0x808080, png.getRGB(128, 3) & 0xFFFFFF);
+    }
+
+    @Test
+    public void testDuplicateNamesAndBadArguments() throws Exception {
+        Path manifest = dir.resolve("defs.txt");
+        Files.write(manifest, Arrays.asList("a;LINEAR_RGB;256;0 #000000;1 #FFFFFF", "a;LINEAR_RGB;256;0 #000000;1 #FFFFFF"));
+        BatchLUTGenerator gen = new BatchLUTGenerator();
+        gen.parseArgs(new String[]{"-o", dir.resolve("out").toString(), manifest.toString()});
+        assertThrows(IllegalArgumentException.class, () -> gen.run(new PrintStream(new ByteArrayOutputStream())));
+
+        assertThrows(IllegalArgumentException.class, () -> new BatchLUTGenerator().parseArgs(new String[]{"-f", "gif", "x"}));
+        assertThrows(IllegalArgumentException.class, () -> new BatchLUTGenerator().parseArgs(new String[]{"-t", "0", "x"}));
+        assertThrows(IllegalArgumentException.class, () -> new BatchLUTGenerator().parseArgs(new String[0]));
+    }
+}
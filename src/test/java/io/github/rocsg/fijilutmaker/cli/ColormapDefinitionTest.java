@@ -0,0 +1,52 @@
+package io.github.rocsg.fijilutmaker.cli;
+
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColormapDefinitionTest {
+
+    @Test
+    public void testParse() {
+        ColormapDefinition d = ColormapDefinition.parse("fire ; linear_lab;1024; 0 #000000;0.5 #FF4000 ;1 #ffffc0", "defs:3");
+        assertEquals("fire", d.getName());
+        assertEquals(InterpolationMode.LINEAR_LAB, d.getMode());
+        Colormap cm = d.toColormap();
+        assertEquals(1024, cm.getLutSize());
+        assertEquals(3, cm.getPoints().size());
+        assertArrayEquals(new int[]{255, 64, 0}, cm.getPoints().get(1).getRgb());
+        assertNotSame(cm.getPoints().get(0), d.toColormap().getPoints().get(0));
+    }
+
+    @Test
+    public void testModeIndependentOfDefaultLocale() {
+        Locale previous = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR")); // "i".toUpperCase() is a dotted capital I
+            assertEquals(InterpolationMode.LINEAR_LAB, ColormapDefinition.parse("x;linear_lab;256;0 #000000;1 #ffffff", "t").getMode());
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    public void testErrorsCarrySource() {
+        String[] bad = {
+            "x;LINEAR_RGB;256;0 #000000",           // one point
+            "x;NOPE;256;0 #000000;1 #FFFFFF",
+            "x;LINEAR_RGB;1;0 #000000;1 #FFFFFF",
+            "x;LINEAR_RGB;256;0 #000000;1.5 #FFFFFF",
+            "x;LINEAR_RGB;256;0 #000000;1 FFFFFF",
+            "a/b;LINEAR_RGB;256;0 #000000;1 #FFFFFF",
+        };
+        for (String line : bad) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> ColormapDefinition.parse(line, "defs:7"), line);
+            assertTrue(e.getMessage().startsWith("defs:7"), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.rocsg.fijilutmaker.color;
+
+import io.github.rocsg.fijilutmaker.color.ColorBlindSimulator.Deficiency;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColorBlindSimulatorTest {
+
+    // Straightforward matrix product in linear RGB, with pow-based transfer functions
+    private static int reference(double[] m, int rgb) {
+        double[] lin = new double[3];
+        for (int c = 0; c < 3; c++) {
+            double v = ((rgb >> (16 - 8 * c)) & 0xFF) / 255.0;
+            lin[c] = (v <= 0.04045) ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+        }
+        int out = 0;
+        for (int r = 0; r < 3; r++) {
+            double v = m[3 * r] * lin[0] + m[3 * r + 1] * lin[1] + m[3 * r + 2] * lin[2];
+            v = Math.max(0, Math.min(1, v));
+            v = (v <= 0.0031308) ? 12.92 * v : 1.055 * Math.pow(v, 1 / 2.4) - 0.055;
+            out = (out << 8) | (int) Math.round(v * 255);
+        }
+        return out;
+    }
+
+    @Test
+    public void testMatchesMatrixProduct() {
+        java.util.Random rnd = new java.util.Random(5);
+        for (Deficiency d : Deficiency.values()) {
+            for (double severity : new double[]{1.0, 0.6}) {
+                ColorBlindSimulator sim = ColorBlindSimulator.of(d, severity);
+                double[] m = sim.getMatrix();
+                for (int k = 0; k < 2000; k++) {
+                    int rgb = rnd.nextInt(0x1000000);
+                    assertEquals(reference(m, rgb), sim.simulate(rgb), d + " " + severity + " " + Integer.toHexString(rgb));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSeverityAndNeutralColors() {
+        for (Deficiency d : Deficiency.values()) {
+            ColorBlindSimulator none = ColorBlindSimulator.of(d, 0);
+            assertEquals(0x3A7FC2, none.simulate(0x3A7FC2));
+            assertSame(ColorBlindSimulator.dichromat(d), ColorBlindSimulator.of(d, 1));
+            // Grays are preserved (rows of the matrices sum to 1)
+            for (int v : new int[]{0, 60, 128, 255}) {
+                int gray = PackedLUT.pack(v, v, v);
+                int s = ColorBlindSimulator.dichromat(d).simulate(gray);
+                for (int c = 0; c < 3; c++) assertEquals(v, (s >> (8 * c)) & 0xFF, 1);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> ColorBlindSimulator.of(Deficiency.PROTAN, 1.5));
+        // Red and green become close for a deuteranope
+        int red = ColorBlindSimulator.DEUTERANOPIA.simulate(0xC03020), green = ColorBlindSimulator.DEUTERANOPIA.simulate(0x709020);
+        assertTrue(Math.abs(((red >> 16) & 0xFF) - ((green >> 16) & 0xFF)) < 40);
+    }
+
+    @Test
+    public void testPackedLUTAndLegacyApi() {
+        int[] packed = new int[256];
+        for (int i = 0; i < 256; i++) packed[i] = PackedLUT.pack(i, 255 - i, (i * 7) & 0xFF);
+        PackedLUT lut = new PackedLUT(packed);
+        PackedLUT sim = ColorBlindSimulator.TRITANOPIA.simulate(lut);
+        int[][] legacy = ColorBlindSimulator.simulateLUT(lut.toRGBArray(), "Tritanope");
+        for (int i = 0; i < 256; i++) {
+            assertEquals(ColorBlindSimulator.TRITANOPIA.simulate(packed[i]), sim.get(i));
+            assertArrayEquals(sim.getRgb(i), legacy[i]);
+        }
+        assertArrayEquals(new int[]{1, 2, 3}, ColorBlindSimulator.simulateLUT(new int[][]{{1, 2, 3}}, "none")[0]);
+        assertArrayEquals(ColorBlindSimulator.simulateProtanope(new int[]{200, 40, 10}),
+                ColorBlindSimulator.PROTANOPIA.simulate(new PackedLUT(new int[]{0xC8280A, 0})).getRgb(0));
+    }
+}
@@ -32,4 +32,66 @@ public class ColorUtilsTest {
             assertTrue(Math.abs(rgb[i] - rgb2[i]) < 3, "Roundtrip RGB->LCH->RGB for channel " + i);
         }
     }
+
+    @Test
+    public void testLinearToSrgbMatchesPowFormula() {
+        java.util.Random rnd = new java.util.Random(42);
+        for (int i = 0; i < 200000; i++) {
+            double v = (i < 100000) ? rnd.nextDouble() : rnd.nextDouble() * 0.01;
+            double e = (v <= 0.0031308) ? 12.92 * v : 1.055 * Math.pow(v, 1/2.4) - 0.055;
+            int expected = Math.max(0, Math.min(255, (int) Math.round(e * 255.0)));
+            assertEquals(expected, ColorUtils.linearToSrgb(v), "linear " + v);
+        }
+        assertEquals(0, ColorUtils.linearToSrgb(-0.5));
+        assertEquals(255, ColorUtils.linearToSrgb(1.5));
+    }
+
+    @Test
+    public void testDeltaE2000ReferencePairs() {
+        // Sharma, Wu & Dalal (2005) test data
+        double[][] pairs = {
+            {50.0, 2.6772, -79.7751, 50.0, 0.0, -82.7485, 2.0425},
+            {50.0, 0.0, 0.0, 50.0, -1.0, 2.0, 2.3669},
+            {50.0, 2.49, -0.001, 50.0, -2.49, 0.0009, 7.1792},
+            {50.0, 2.5, 0.0, 73.0, 25.0, -18.0, 27.1492},
+            {60.2574, -34.0099, 36.2677, 60.4626, -34.1751, 39.4387, 1.2644},
+            {2.0776, 0.0795, -1.1350, 0.9033, -0.0636, -0.5514, 0.9082},
+        };
+        for (double[] p : pairs) {
+            assertEquals(p[6], ColorUtils.deltaE2000(p[0], p[1], p[2], p[3], p[4], p[5]), 1e-4);
+            assertEquals(p[6], ColorUtils.deltaE2000(p[3], p[4], p[5], p[0], p[1], p[2]), 1e-4);
+        }
+        assertEquals(0, ColorUtils.deltaE2000(40, 10, -5, 40, 10, -5), 1e-12);
+        assertEquals(5, ColorUtils.deltaE76(10, 0, 0, 10, 3, 4), 1e-12);
+    }
+
+    @Test
+    public void testFastCbrt() {
+        for (double x = 0.008; x < 1.2; x += 0.0007)
+            assertEquals(Math.cbrt(x), ColorUtils.fastCbrt(x), 1e-12);
+    }
+
+    @Test
+    public void testBatchConversionsMatchScalar() {
+        int n = 0;
+        int[] packed = new int[37 * 37 * 37];
+        for (int r = 0; r < 256; r += 7)
+            for (int g = 0; g < 256; g += 7)
+                for (int b = 0; b < 256; b += 7)
+                    packed[n++] = (r << 16) | (g << 8) | b;
+        float[] lab = new float[3 * n];
+        ColorUtils.rgbToLab(packed, lab, n);
+        for (int i = 0; i < n; i++) {
+            int v = packed[i];
+            double[] ref = ColorUtils.rgbToLab((v >> 16) & 0xFF, (v >> 8) & 0xFF, v & 0xFF);
+            for (int c = 0; c < 3; c++)
+                assertEquals(ref[c], lab[3 * i + c], 1e-4, "Lab channel " + c + " of " + Integer.toHexString(v));
+        }
+        int[] back = new int[n];
+        ColorUtils.labToRgb(lab, back, n);
+        for (int i = 0; i < n; i++) {
+            int[] ref = ColorUtils.labToRgb(lab[3 * i], lab[3 * i + 1], lab[3 * i + 2]);
+            assertEquals((ref[0] << 16) | (ref[1] << 8) | ref[2], back[i]);
+        }
+    }
 }
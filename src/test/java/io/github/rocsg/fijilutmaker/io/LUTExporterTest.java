@@ -0,0 +1,98 @@
+package io.github.rocsg.fijilutmaker.io;
+
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LUTExporterTest {
+
+    @TempDir
+    Path dir;
+
+    private static Colormap sample(int size) {
+        Colormap cm = new Colormap();
+        cm.addPoint(new ColorPoint(0.0, new int[]{0, 0, 80}));
+        cm.addPoint(new ColorPoint(0.5, new int[]{200, 30, 30}));
+        cm.addPoint(new ColorPoint(1.0, new int[]{255, 255, 0}));
+        cm.setLutSize(size);
+        return cm;
+    }
+
+    @Test
+    public void testImageJLut() throws Exception {
+        Colormap cm = sample(256);
+        PackedLUT lut = cm.generatePackedLUT();
+        Path file = dir.resolve("a.lut");
+        LUTExporter.exportToImageJ(cm, file.toFile());
+        byte[] bytes = Files.readAllBytes(file);
+        assertEquals(768, bytes.length);
+        for (int i = 0; i < 256; i++) {
+            assertEquals(lut.red(i), bytes[i] & 0xFF);
+            assertEquals(lut.green(i), bytes[256 + i] & 0xFF);
+            assertEquals(lut.blue(i), bytes[512 + i] & 0xFF);
+        }
+        Path viaColormap = dir.resolve("b.lut");
+        cm.exportAsImageJLUT(viaColormap.toFile());
+        assertArrayEquals(bytes, Files.readAllBytes(viaColormap));
+    }
+
+    @Test
+    public void testAllFormatsFromOneLut() throws Exception {
+        Colormap cm = sample(70000); // more lines than one CSV buffer, indices above 65535
+        PackedLUT lut = cm.generatePackedLUT();
+        LUTExporter.export(cm, dir, "big", EnumSet.allOf(LUTExporter.Format.class), 3);
+
+        assertEquals(768, Files.size(dir.resolve("big.lut")));
+        assertEquals(lut.resample(256).get(100) >> 16, Files.readAllBytes(dir.resolve("big.lut"))[100] & 0xFF);
+
+        List<String> lines = Files.readAllLines(dir.resolve("big.csv"));
+        assertEquals("index,r,g,b", lines.get(0));
+        assertEquals(70001, lines.size());
+        for (int i : new int[]{0, 9, 10, 99, 100, 12345, 69999}) {
+            assertEquals(i + "," + lut.red(i) + "," + lut.green(i) + "," + lut.blue(i), lines.get(i + 1));
+        }
+
+        BufferedImage png = ImageIO.read(dir.resolve("big.png").toFile());
+        assertEquals(70000, png.getWidth());
+        assertEquals(3, png.getHeight());
+        for (int i = 0; i < 70000; i += 997) assertEquals(lut.get(i), png.getRGB(i, 2) & 0xFFFFFF);
+    }
+
+    @Test
+    public void testPngOverSeveralIdatChunks() throws Exception {
+        // Noisy colors barely compress: the image data spans several IDAT chunks
+        int[] packed = new int[50000];
+        Random rnd = new Random(3);
+        for (int i = 0; i < packed.length; i++) packed[i] = rnd.nextInt(1 << 24);
+        PackedLUT lut = new PackedLUT(packed);
+        Path file = dir.resolve("noise.png");
+        LUTExporter.exportToPNG(lut, file.toFile(), 2);
+
+        assertTrue(Files.size(file) > 2 * LUTExporter.PNG_IDAT_BYTES);
+        BufferedImage png = ImageIO.read(file.toFile());
+        assertEquals(50000, png.getWidth());
+        assertEquals(2, png.getHeight());
+        for (int y = 0; y < 2; y++)
+            for (int i = 0; i < packed.length; i++) assertEquals(packed[i], png.getRGB(i, y) & 0xFFFFFF);
+    }
+
+    @Test
+    public void testOnlyRequestedFormats() throws Exception {
+        LUTExporter.export(sample(16), dir, "small", EnumSet.of(LUTExporter.Format.CSV), 1);
+        assertTrue(Files.exists(dir.resolve("small.csv")));
+        assertFalse(Files.exists(dir.resolve("small.lut")));
+        assertFalse(Files.exists(dir.resolve("small.png")));
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.rocsg.fijilutmaker.io;
+
+import io.github.rocsg.fijilutmaker.color.ColorUtils;
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LUTImporterTest {
+
+    @TempDir
+    Path dir;
+
+    private static PackedLUT smoothLut(int size) {
+        Colormap cm = new Colormap();
+        cm.addPoint(new ColorPoint(0.0, new int[]{10, 0, 60}));
+        cm.addPoint(new ColorPoint(0.3, new int[]{40, 120, 200}));
+        cm.addPoint(new ColorPoint(0.7, new int[]{250, 180, 20}));
+        cm.addPoint(new ColorPoint(1.0, new int[]{255, 255, 230}));
+        cm.setInterpolationMode(InterpolationMode.SPLINE_LAB);
+        cm.setLutSize(size);
+        return cm.generatePackedLUT();
+    }
+
+    private static double maxDeltaE(PackedLUT a, PackedLUT b) {
+        double max = 0;
+        for (int i = 0; i < a.size(); i++) {
+            double[] la = ColorUtils.rgbToLab(a.red(i), a.green(i), a.blue(i));
+            double[] lb = ColorUtils.rgbToLab(b.red(i), b.green(i), b.blue(i));
+            max = Math.max(max, Math.sqrt(Math.pow(la[0] - lb[0], 2) + Math.pow(la[1] - lb[1], 2) + Math.pow(la[2] - lb[2], 2)));
+        }
+        return max;
+    }
+
+    @Test
+    public void testLosslessRoundTrip() throws Exception {
+        PackedLUT lut = smoothLut(256);
+        Path file = dir.resolve("smooth.lut");
+        LUTExporter.exportToImageJ(lut, file.toFile());
+        for (InterpolationMode mode : new InterpolationMode[]{InterpolationMode.LINEAR_RGB, InterpolationMode.LINEAR_LAB}) {
+            Colormap cm = LUTImporter.importFromImageJ(file.toFile(), mode, 0);
+            assertEquals(256, cm.getLutSize());
+            assertTrue(cm.getPoints().size() < 256, mode + ": " + cm.getPoints().size() + " points");
+            assertArrayEquals(lut.toPackedArray(), cm.generatePackedLUT().toPackedArray(), mode.toString());
+        }
+        Colormap viaColormap = Colormap.importFromImageJLUT(file.toFile());
+        assertArrayEquals(lut.toPackedArray(), viaColormap.generatePackedLUT().toPackedArray());
+    }
+
+    @Test
+    public void testToleranceGivesFewerPoints() {
+        PackedLUT lut = smoothLut(1024);
+        int exact = LUTImporter.fit(lut, InterpolationMode.LINEAR_RGB, 0).getPoints().size();
+        Colormap approx = LUTImporter.fit(lut, InterpolationMode.LINEAR_RGB, 2.0);
+        assertTrue(approx.getPoints().size() < exact, approx.getPoints().size() + " vs " + exact);
+        assertTrue(maxDeltaE(lut, approx.generatePackedLUT()) <= 2.0);
+    }
+
+    @Test
+    public void testLinearLutNeedsFewPoints() {
+        int[] ramp = new int[256];
+        for (int i = 0; i < 256; i++) ramp[i] = PackedLUT.pack(i, i, 255 - i);
+        Colormap cm = LUTImporter.fit(new PackedLUT(ramp), InterpolationMode.LINEAR_RGB, 0);
+        assertEquals(2, cm.getPoints().size());
+        assertArrayEquals(ramp, cm.generatePackedLUT().toPackedArray());
+    }
+
+    @Test
+    public void testHeaderVariant() throws Exception {
+        PackedLUT lut = smoothLut(256);
+        byte[][] planes = lut.toBytePlanes();
+        byte[] file = new byte[800];
+        file[0] = 'I'; file[1] = 'C'; file[2] = 'O'; file[3] = 'L';
+        file[7] = 0; file[6] = 1; // nColors = 256, big-endian
+        System.arraycopy(planes[0], 0, file, 32, 256);
+        System.arraycopy(planes[1], 0, file, 288, 256);
+        System.arraycopy(planes[2], 0, file, 544, 256);
+        Path p = dir.resolve("header.lut");
+        Files.write(p, file);
+        assertArrayEquals(lut.toPackedArray(), LUTImporter.readImageJ(p).toPackedArray());
+        // NIH LUTs with trailing bytes after the planes
+        Path trailing = dir.resolve("trailing.lut");
+        Files.write(trailing, Arrays.copyOf(file, 1024));
+        assertArrayEquals(lut.toPackedArray(), LUTImporter.readImageJ(trailing).toPackedArray());
+        // 970-byte raw variant: the planes come first
+        byte[] raw = new byte[970];
+        System.arraycopy(file, 32, raw, 0, 768);
+        Path raw970 = dir.resolve("raw970.lut");
+        Files.write(raw970, raw);
+        assertArrayEquals(lut.toPackedArray(), LUTImporter.readImageJ(raw970).toPackedArray());
+    }
+
+    @Test
+    public void testCsvVariants() throws Exception {
+        PackedLUT lut = smoothLut(300);
+        Path withIndex = dir.resolve("a.csv");
+        LUTExporter.exportToCSV(lut, withIndex.toFile());
+        assertArrayEquals(lut.toPackedArray(), LUTImporter.readCSV(withIndex).toPackedArray());
+        assertArrayEquals(lut.toPackedArray(), LUTImporter.importFromCSV(withIndex.toFile()).generatePackedLUT().toPackedArray());
+
+        Path fractions = dir.resolve("b.csv");
+        Files.write(fractions, Arrays.asList("r g b", "0.0 0.0 0.0", "0.5 0.25 1.0", "1.0 1.0 1.0"));
+        assertArrayEquals(new int[]{0x000000, 0x8040FF, 0xFFFFFF}, LUTImporter.readCSV(fractions).toPackedArray());
+    }
+
+    @Test
+    public void testMalformedFiles() throws Exception {
+        Path shortLut = dir.resolve("short.lut");
+        Files.write(shortLut, new byte[700]);
+        assertThrows(IOException.class, () -> LUTImporter.readImageJ(shortLut));
+        // Raw LUT with trailing bytes, and other binary files: rejected, not read as a shifted LUT
+        for (int size : new int[]{769, 800, 4096}) {
+            Path misSized = dir.resolve("mis" + size + ".lut");
+            Files.write(misSized, new byte[size]);
+            assertThrows(IOException.class, () -> LUTImporter.readImageJ(misSized), size + " bytes");
+        }
+        // Header declaring an invalid number of colors, and a header file too short for its planes
+        byte[] header = new byte[800];
+        header[0] = 'I'; header[1] = 'C'; header[2] = 'O'; header[3] = 'L'; header[6] = 1; header[7] = 1; // 257
+        Path badCount = dir.resolve("header257.lut");
+        Files.write(badCount, header);
+        assertThrows(IOException.class, () -> LUTImporter.readImageJ(badCount));
+        Path truncated = dir.resolve("truncated.lut");
+        header[7] = 0;
+        Files.write(truncated, Arrays.copyOf(header, 799));
+        assertThrows(IOException.class, () -> LUTImporter.readImageJ(truncated));
+        Path badCsv = dir.resolve("bad.csv");
+        Files.write(badCsv, Arrays.asList("1,2,3", "4,x,6"));
+        assertThrows(IOException.class, () -> LUTImporter.readCSV(badCsv));
+        assertThrows(IllegalArgumentException.class,
+                () -> LUTImporter.fit(smoothLut(16), InterpolationMode.SPLINE_RGB, 0));
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.rocsg.fijilutmaker.io;
+
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LUTLibraryIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private static Colormap colormap(int[]... colors) {
+        Colormap cm = new Colormap();
+        for (int i = 0; i < colors.length; i++) cm.addPoint(new ColorPoint(i / (colors.length - 1.0), colors[i]));
+        cm.setInterpolationMode(InterpolationMode.LINEAR_LAB);
+        return cm;
+    }
+
+    private void writeLibrary() throws IOException {
+        Path sub = Files.createDirectories(dir.resolve("lib/sub"));
+        LUTExporter.exportToImageJ(colormap(new int[]{0, 0, 0}, new int[]{255, 255, 255}), dir.resolve("lib/gray.lut").toFile());
+        LUTExporter.exportToCSV(colormap(new int[]{0, 0, 255}, new int[]{255, 0, 0}), sub.resolve("bluered.csv").toFile());
+        LUTExporter.exportToImageJ(colormap(new int[]{0, 0, 0}, new int[]{255, 255, 255}), sub.resolve("gray-copy.lut").toFile());
+        LUTExporter.exportToImageJ(colormap(new int[]{0, 0, 0}, new int[]{255, 255, 0}, new int[]{0, 0, 80}),
+                sub.resolve("bump.lut").toFile());
+        Files.write(dir.resolve("lib/broken.lut"), new byte[]{1, 2, 3});
+        Files.write(dir.resolve("lib/notes.txt"), new byte[]{1, 2, 3});
+    }
+
+    @Test
+    public void testScanAndQuery() throws IOException {
+        writeLibrary();
+        Path lib = dir.resolve("lib");
+        LUTLibraryIndex index = LUTLibraryIndex.open(lib, dir.resolve("lib.idx"));
+        LUTLibraryIndex.ScanResult r = index.rescan();
+        assertEquals(5, r.files);
+        assertEquals(1, r.failed);
+        assertEquals(4, r.analyzed);
+        assertEquals(0, r.reused);
+
+        List<LUTLibraryIndex.Entry> monotone = index.query(new LUTLibraryIndex.Query().monotoneLuminance(true));
+        assertTrue(monotone.stream().anyMatch(e -> e.getPath().equals("gray.lut")));
+        assertTrue(monotone.stream().anyMatch(e -> e.getPath().equals("sub/gray-copy.lut")));
+        assertTrue(monotone.stream().noneMatch(e -> e.getPath().equals("sub/bump.lut")));
+        assertTrue(monotone.stream().noneMatch(e -> e.getPath().equals("broken.lut")));
+
+        List<LUTLibraryIndex.Entry> inSub = index.query(new LUTLibraryIndex.Query().pathContains("SUB/").colorblindSafe(true));
+        assertTrue(inSub.stream().allMatch(e -> e.getPath().startsWith("sub/") && e.isColorblindSafe()));
+        LUTLibraryIndex.Entry gray = monotone.get(0);
+        assertEquals(256, gray.getLutSize());
+        assertTrue(gray.getMeanDeltaE() > 0);
+        assertTrue(gray.getUniformity() < 0.5);
+        assertTrue(gray.getMeanDeltaE2000() > 0 && gray.getMaxDeltaE2000() >= gray.getMeanDeltaE2000());
+        assertTrue(index.query(new LUTLibraryIndex.Query().maxStepDeltaE2000(0.1)).isEmpty());
+        assertEquals(4, index.query(new LUTLibraryIndex.Query().maxStepDeltaE2000(50)).size());
+    }
+
+    @Test
+    public void testRescanOnlyTouchesChangedFiles() throws IOException {
+        writeLibrary();
+        Path lib = dir.resolve("lib"), idx = dir.resolve("lib.idx");
+        LUTLibraryIndex.open(lib, idx).rescan();
+        assertTrue(Files.size(idx) > 0);
+
+        // Reloaded from disk: nothing to analyze
+        LUTLibraryIndex index = LUTLibraryIndex.open(lib, idx);
+        assertEquals(5, index.getEntries().size());
+        LUTLibraryIndex.ScanResult r = index.rescan();
+        assertEquals(5, r.reused);
+        assertEquals(0, r.analyzed);
+        assertEquals(0, r.failed);
+
+        // One file edited, one deleted, one only touched
+        Path bump = lib.resolve("sub/bump.lut");
+        LUTExporter.exportToImageJ(colormap(new int[]{0, 0, 0}, new int[]{0, 255, 0}), bump.toFile());
+        Files.setLastModifiedTime(bump, FileTime.fromMillis(Files.getLastModifiedTime(bump).toMillis() + 5000));
+        Files.delete(lib.resolve("broken.lut"));
+        Path gray = lib.resolve("gray.lut");
+        Files.setLastModifiedTime(gray, FileTime.fromMillis(Files.getLastModifiedTime(gray).toMillis() + 5000));
+        r = index.rescan();
+        assertEquals(4, r.files);
+        assertEquals(1, r.analyzed);
+        assertEquals(3, r.reused); // gray.lut is matched by content hash
+        assertEquals(1, r.removed);
+        assertTrue(index.query(new LUTLibraryIndex.Query().pathContains("bump")).get(0).isMonotoneLuminance());
+    }
+
+    @Test
+    public void testCorruptIndexIsRebuilt() throws IOException {
+        writeLibrary();
+        Path idx = dir.resolve("lib.idx");
+        Files.write(idx, new byte[]{0, 1, 2, 3, 4, 5, 6, 7});
+        LUTLibraryIndex index = LUTLibraryIndex.open(dir.resolve("lib"), idx);
+        assertTrue(index.getEntries().isEmpty());
+        assertEquals(4, index.rescan().analyzed);
+        assertEquals(5, LUTLibraryIndex.open(dir.resolve("lib"), idx).getEntries().size());
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.rocsg.fijilutmaker.model;
+
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+import io.github.rocsg.fijilutmaker.utils.InterpolationPlan;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColormapSnapshotTest {
+
+    private static Colormap sample() {
+        Colormap cm = new Colormap();
+        cm.addPoint(new ColorPoint(0.0, new int[]{20, 0, 40}));
+        cm.addPoint(new ColorPoint(0.7, new int[]{0, 200, 80}));
+        cm.addPoint(new ColorPoint(0.2, new int[]{255, 0, 0}));
+        cm.addPoint(new ColorPoint(1.0, new int[]{255, 255, 200}));
+        return cm;
+    }
+
+    @Test
+    public void testSnapshotTracksEdits() {
+        Colormap cm = sample();
+        ColormapSnapshot s1 = cm.snapshot();
+        assertSame(s1, cm.snapshot());
+        assertSame(s1, cm.getPublishedSnapshot());
+        assertEquals(0.2, s1.getPoints().get(1).getPosition()); // sorted
+        assertThrows(UnsupportedOperationException.class, () -> s1.getPoints().remove(0));
+
+        // Edit through a ColorPoint setter: new snapshot, unchanged points reused
+        cm.getPoints().get(1).setRgb(new int[]{10, 10, 10});
+        ColormapSnapshot s2 = cm.snapshot();
+        assertNotSame(s1, s2);
+        assertEquals(0x0A0A0A, s2.getPoints().get(2).getPackedRgb());
+        assertEquals(0x00C850, s1.getPoints().get(2).getPackedRgb()); // old snapshot untouched
+        assertSame(s1.getPoints().get(0), s2.getPoints().get(0));
+        assertSame(s1.getPoints().get(3), s2.getPoints().get(3));
+
+        cm.setInterpolationMode(InterpolationMode.SPLINE_LAB);
+        assertEquals(InterpolationMode.SPLINE_LAB, cm.snapshot().getInterpolationMode());
+        assertEquals(InterpolationMode.LINEAR_RGB, s2.getInterpolationMode());
+
+        cm.sortPoints();
+        assertEquals(0.2, cm.getPoints().get(1).getPosition());
+    }
+
+    @Test
+    public void testSnapshotPlanMatchesListPlan() {
+        Colormap cm = sample();
+        List<ColorPoint> sorted = new ArrayList<>(cm.getPoints());
+        sorted.sort((a, b) -> Double.compare(a.getPosition(), b.getPosition()));
+        for (InterpolationMode mode : InterpolationMode.values()) {
+            cm.setInterpolationMode(mode);
+            ColormapSnapshot s = cm.snapshot();
+            int[] expected = new int[512], actual = new int[512];
+            new InterpolationPlan(sorted, mode).fill(expected);
+            s.compilePlan().fill(actual);
+            assertArrayEquals(expected, actual, mode.toString());
+            assertSame(s.compilePlan(), cm.compilePlan());
+            assertArrayEquals(cm.generatePackedLUT().toPackedArray(), s.generatePackedLUT().toPackedArray());
+        }
+    }
+
+    @Test
+    public void testWorkersRenderPublishedSnapshotsWhileEditing() throws Exception {
+        Colormap cm = sample();
+        cm.setInterpolationMode(InterpolationMode.SPLINE_LCH);
+        cm.snapshot();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        List<Future<ColormapSnapshot>> results = new ArrayList<>();
+        Random rnd = new Random(9);
+        try {
+            for (int k = 0; k < 200; k++) {
+                // Edit the live model, publish, and let workers use whatever snapshot is current
+                ColorPoint p = cm.getPoints().get(1 + rnd.nextInt(2));
+                p.setRgb(new int[]{rnd.nextInt(256), rnd.nextInt(256), rnd.nextInt(256)});
+                cm.snapshot();
+                results.add(pool.submit(() -> {
+                    ColormapSnapshot s = cm.getPublishedSnapshot();
+                    s.generatePackedLUT();
+                    return s;
+                }));
+            }
+            for (Future<ColormapSnapshot> f : results) {
+                ColormapSnapshot s = f.get(30, TimeUnit.SECONDS);
+                List<ColorPoint> pts = new ArrayList<>();
+                for (ColormapSnapshot.Point p : s.getPoints()) pts.add(p.toColorPoint());
+                int[] expected = new int[s.getLutSize()];
+                new InterpolationPlan(pts, s.getInterpolationMode()).fill(expected);
+                assertArrayEquals(expected, s.generatePackedLUT().toPackedArray());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.rocsg.fijilutmaker.model;
+
+import io.github.rocsg.fijilutmaker.utils.InterpolationPlan;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColormapTest {
+
+    private static Colormap sample(Colormap.InterpolationMode mode, int size) {
+        Colormap cm = new Colormap();
+        cm.setLutSize(size);
+        cm.setInterpolationMode(mode);
+        cm.addPoint(new ColorPoint(0.0, new int[]{0, 0, 0}));
+        cm.addPoint(new ColorPoint(0.25, new int[]{200, 0, 50}));
+        cm.addPoint(new ColorPoint(0.5, new int[]{30, 120, 250}));
+        cm.addPoint(new ColorPoint(0.75, new int[]{250, 200, 0}));
+        cm.addPoint(new ColorPoint(1.0, new int[]{255, 255, 255}));
+        return cm;
+    }
+
+    private static void assertSameAsFresh(Colormap cm) {
+        Colormap fresh = new Colormap();
+        fresh.setLutSize(cm.getLutSize());
+        fresh.setInterpolationMode(cm.getInterpolationMode());
+        fresh.setPoints(cm.getPoints());
+        assertArrayEquals(fresh.generatePackedLUT().toPackedArray(), cm.generatePackedLUT().toPackedArray());
+    }
+
+    @Test
+    public void testIncrementalRegenerationMatchesFull() {
+        for (Colormap.InterpolationMode mode : Colormap.InterpolationMode.values()) {
+            Colormap cm = sample(mode, 4096);
+            cm.generatePackedLUT();
+            InterpolationPlan before = cm.compilePlan();
+
+            cm.getPoints().get(2).setPosition(0.55);   // drag one point
+            assertSameAsFresh(cm);
+            int[] dirty = cm.compilePlan().changedRange(before, 4096);
+            if (mode.name().startsWith("LINEAR")) {
+                assertEquals((int) Math.floor(0.25 * 4095), dirty[0], mode.toString());
+                assertEquals((int) Math.ceil(0.75 * 4095) + 1, dirty[1], mode.toString());
+            } else {
+                assertArrayEquals(new int[]{0, 4096}, dirty, mode.toString());
+            }
+
+            cm.getPoints().get(4).setRgb(new int[]{255, 0, 255}); // recolor the last point
+            assertSameAsFresh(cm);
+            cm.addPoint(new ColorPoint(0.9, new int[]{0, 255, 0}));
+            assertSameAsFresh(cm);
+            cm.removePoint(0);
+            assertSameAsFresh(cm);
+        }
+    }
+
+    @Test
+    public void testNoChangeKeepsLUT() {
+        Colormap cm = sample(Colormap.InterpolationMode.LINEAR_LAB, 256);
+        PackedLUT first = cm.generatePackedLUT();
+        InterpolationPlan plan = cm.compilePlan();
+        assertSame(first, cm.generatePackedLUT());
+        assertSame(plan, cm.compilePlan());
+        assertArrayEquals(new int[]{0, 0}, cm.compilePlan().changedRange(plan, 256));
+    }
+
+    @Test
+    public void testModificationCountTracksAllEdits() {
+        Colormap cm = sample(Colormap.InterpolationMode.LINEAR_RGB, 256);
+        long v0 = cm.getModificationCount();
+        assertEquals(v0, cm.getModificationCount());
+
+        cm.getPoints().get(1).setRgb(new int[]{1, 2, 3});
+        long v1 = cm.getModificationCount();
+        assertTrue(v1 > v0);
+
+        cm.getPoints().sort((a, b) -> Double.compare(b.getPosition(), a.getPosition())); // live list edit
+        long v2 = cm.getModificationCount();
+        assertTrue(v2 > v1);
+
+        cm.setInterpolationMode(Colormap.InterpolationMode.LINEAR_RGB); // same mode: no change
+        assertEquals(v2, cm.getModificationCount());
+        cm.setLutSize(1024);
+        assertTrue(cm.getModificationCount() > v2);
+
+        PackedLUT lut = cm.generatePackedLUT();
+        assertSame(lut, cm.generatePackedLUT());
+        cm.getPoints().get(0).setPosition(0.9);
+        assertNotSame(lut, cm.generatePackedLUT());
+    }
+}
@@ -0,0 +1,40 @@
+package io.github.rocsg.fijilutmaker.model;
+
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColormapValidatorTest {
+
+    private static Colormap colormap(InterpolationMode mode, int[]... colors) {
+        Colormap cm = new Colormap();
+        for (int i = 0; i < colors.length; i++) cm.addPoint(new ColorPoint(i / (colors.length - 1.0), colors[i]));
+        cm.setInterpolationMode(mode);
+        return cm;
+    }
+
+    @Test
+    public void testGrayRamp() {
+        Colormap gray = colormap(InterpolationMode.LINEAR_LAB, new int[]{0, 0, 0}, new int[]{255, 255, 255});
+        assertTrue(ColormapValidator.isMonotoneLuminance(gray));
+        assertTrue(ColormapValidator.isColorblindSafe(gray));
+        double[] l = ColormapValidator.luminanceProfile(gray);
+        assertEquals(256, l.length);
+        assertEquals(0, l[0], 1e-3);
+        assertEquals(100, l[255], 0.1);
+        // 100 L* units over 255 steps
+        assertEquals(100.0 / 255, ColormapValidator.getPerceptualDelta(gray), 0.05);
+        assertTrue(ColormapValidator.getPerceptualUniformity(gray.generatePackedLUT()) < 0.5);
+    }
+
+    @Test
+    public void testNonMonotoneAndConfusable() {
+        Colormap bump = colormap(InterpolationMode.LINEAR_RGB, new int[]{0, 0, 0}, new int[]{255, 255, 255}, new int[]{0, 0, 0});
+        assertFalse(ColormapValidator.isMonotoneLuminance(bump));
+        assertFalse(ColormapValidator.isColorblindSafe(bump)); // both ends are identical
+        Colormap flat = colormap(InterpolationMode.LINEAR_RGB, new int[]{90, 90, 90}, new int[]{90, 90, 90});
+        assertFalse(ColormapValidator.isMonotoneLuminance(flat));
+        assertEquals(0, ColormapValidator.getPerceptualUniformity(flat.generatePackedLUT()));
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.rocsg.fijilutmaker.model;
+
+import io.github.rocsg.fijilutmaker.color.ColorBlindSimulator;
+import io.github.rocsg.fijilutmaker.color.ColorBlindSimulator.Deficiency;
+import io.github.rocsg.fijilutmaker.color.ColorUtils;
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfusionDetectorTest {
+
+    // Smallest simulated ΔE76 over pairs at least gap apart, by brute force
+    private static double bruteForceMin(PackedLUT lut, Deficiency d, int gap) {
+        int n = lut.size();
+        float[] lab = new float[3 * n];
+        int[] sim = new int[n];
+        for (int i = 0; i < n; i++) sim[i] = ColorBlindSimulator.dichromat(d).simulate(lut.get(i));
+        ColorUtils.rgbToLab(sim, lab, n);
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++)
+            for (int j = i + gap; j < n; j++)
+                min = Math.min(min, ColorUtils.deltaE76(lab[3 * i], lab[3 * i + 1], lab[3 * i + 2],
+                                                        lab[3 * j], lab[3 * j + 1], lab[3 * j + 2]));
+        return min;
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random rnd = new Random(11);
+        for (int trial = 0; trial < 6; trial++) {
+            int[] packed = new int[300];
+            for (int i = 0; i < packed.length; i++)
+                packed[i] = (trial % 2 == 0) ? rnd.nextInt(0x1000000) : PackedLUT.pack(i % 64, rnd.nextInt(40), 128);
+            PackedLUT lut = new PackedLUT(packed);
+            ConfusionDetector detector = new ConfusionDetector(6, 0.25, 5);
+            for (Deficiency d : Deficiency.values()) {
+                double expected = bruteForceMin(lut, d, 75);
+                List<ConfusionDetector.Pair> pairs = detector.find(lut, d);
+                if (expected >= 6) {
+                    assertTrue(pairs.isEmpty(), d + " trial " + trial);
+                } else {
+                    assertFalse(pairs.isEmpty(), d + " trial " + trial);
+                    assertEquals(expected, pairs.get(0).deltaE, 1e-9, d + " trial " + trial);
+                    assertTrue(pairs.size() <= 5);
+                    for (ConfusionDetector.Pair p : pairs) {
+                        assertTrue(p.j - p.i >= 75);
+                        assertTrue(p.deltaE < 6 && p.deltaE >= pairs.get(0).deltaE);
+                        assertEquals(d, p.deficiency);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRepeatedColorsAreConfusable() {
+        int[] packed = new int[64];
+        for (int i = 0; i < 64; i++) packed[i] = PackedLUT.pack(4 * i, 0, 255 - 4 * i);
+        packed[63] = packed[0];
+        List<ConfusionDetector.Pair> pairs = new ConfusionDetector(1, 0.5, 3).find(new PackedLUT(packed));
+        assertEquals(0, pairs.get(0).deltaE);
+        assertEquals(0, pairs.get(0).i);
+        assertEquals(63, pairs.get(0).j);
+    }
+
+    @Test
+    public void testGapOfReportedPair() {
+        // 0 and 40 share a color: their span must not let (0, 20) through with a gap of 20 < 32
+        int[] packed = new int[256];
+        for (int i = 0; i < 256; i++) packed[i] = PackedLUT.pack(64 + i * 3 / 4, 64 + i * 3 / 4, 64 + i * 3 / 4);
+        packed[0] = 0;
+        packed[40] = 0;
+        packed[20] = 0x020202;
+        ConfusionDetector detector = new ConfusionDetector(1, 0.125, 10);
+        for (Deficiency d : Deficiency.values()) {
+            List<ConfusionDetector.Pair> pairs = detector.find(new PackedLUT(packed), d);
+            assertFalse(pairs.isEmpty(), d.toString());
+            for (ConfusionDetector.Pair p : pairs) assertTrue(p.j - p.i >= 32, d + ": " + p.i + "," + p.j);
+            assertEquals(0, pairs.get(0).i);
+            assertEquals(40, pairs.get(0).j);
+        }
+    }
+
+    @Test
+    public void testLargeLUT() {
+        Colormap gray = new Colormap();
+        gray.addPoint(new ColorPoint(0, new int[]{0, 0, 0}));
+        gray.addPoint(new ColorPoint(1, new int[]{255, 255, 255}));
+        gray.setInterpolationMode(InterpolationMode.LINEAR_RGB);
+        gray.setLutSize(65536);
+        assertTrue(ColormapValidator.isColorblindSafe(gray.generatePackedLUT()));
+
+        Colormap hues = new Colormap();
+        hues.addPoint(new ColorPoint(0, new int[]{200, 30, 30}));
+        hues.addPoint(new ColorPoint(0.5, new int[]{30, 160, 30}));
+        hues.addPoint(new ColorPoint(1, new int[]{200, 30, 30}));
+        hues.setInterpolationMode(InterpolationMode.LINEAR_RGB);
+        hues.setLutSize(65536);
+        List<ConfusionDetector.Pair> pairs = ColormapValidator.confusablePairs(hues.generatePackedLUT(), 10);
+        assertEquals(10, pairs.size());
+        assertEquals(0, pairs.get(0).deltaE); // symmetric colormap
+        assertFalse(ColormapValidator.isColorblindSafe(hues));
+    }
+}
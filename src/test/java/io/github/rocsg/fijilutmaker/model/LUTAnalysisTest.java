@@ -0,0 +1,74 @@
+package io.github.rocsg.fijilutmaker.model;
+
+import io.github.rocsg.fijilutmaker.color.ColorUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LUTAnalysisTest {
+
+    @Test
+    public void testMatchesPerEntryComputation() {
+        int[] packed = new int[300];
+        java.util.Random rnd = new java.util.Random(3);
+        for (int i = 0; i < packed.length; i++) packed[i] = rnd.nextInt(0x1000000);
+        PackedLUT lut = new PackedLUT(packed);
+        LUTAnalysis a = LUTAnalysis.of(lut);
+
+        double sum = 0, sum2000 = 0, max2000 = 0, min76 = Double.MAX_VALUE;
+        for (int i = 1; i < packed.length; i++) {
+            double[] p = ColorUtils.rgbToLab(lut.red(i - 1), lut.green(i - 1), lut.blue(i - 1));
+            double[] c = ColorUtils.rgbToLab(lut.red(i), lut.green(i), lut.blue(i));
+            double d = ColorUtils.deltaE76(p[0], p[1], p[2], c[0], c[1], c[2]);
+            double d2000 = ColorUtils.deltaE2000(p[0], p[1], p[2], c[0], c[1], c[2]);
+            sum += d; sum2000 += d2000;
+            max2000 = Math.max(max2000, d2000);
+            min76 = Math.min(min76, d);
+            assertEquals(p[0], a.getLightness(i - 1), 1e-3);
+        }
+        assertEquals(sum / 299, a.getMeanDeltaE76(), 1e-3);
+        assertEquals(sum2000 / 299, a.getMeanDeltaE2000(), 1e-3);
+        assertEquals(max2000, a.getMaxDeltaE2000(), 1e-3);
+        assertEquals(min76, a.getMinDeltaE76(), 1e-3);
+        assertTrue(a.getVarianceDeltaE76() > 0);
+        assertFalse(a.isMonotoneLuminance());
+        assertTrue(a.getMonotonicityBreaks() > 0);
+    }
+
+    @Test
+    public void testMonotonicityBreaksAndReuse() {
+        int[] ramp = new int[256];
+        for (int i = 0; i < 256; i++) ramp[i] = PackedLUT.pack(i, i, i);
+        LUTAnalysis a = new LUTAnalysis().analyze(new PackedLUT(ramp));
+        assertTrue(a.isMonotoneLuminance());
+        assertEquals(1, a.getDirection());
+        assertEquals(-1, a.getFirstBreak());
+        assertEquals(0, a.getUniformity(), 0.5);
+
+        // Reversed ramp with one dip, analyzed by the same (smaller) instance
+        int[] down = new int[100];
+        for (int i = 0; i < 100; i++) down[i] = PackedLUT.pack(200 - 2 * i, 200 - 2 * i, 200 - 2 * i);
+        down[40] = down[38];
+        assertSame(a, a.analyze(new PackedLUT(down)));
+        assertEquals(100, a.size());
+        assertEquals(-1, a.getDirection());
+        assertEquals(1, a.getMonotonicityBreaks());
+        assertEquals(40, a.getFirstBreak());
+        assertFalse(a.isMonotoneLuminance());
+        double[] profile = a.luminanceProfile(new double[256]);
+        assertEquals(a.getLightness(99), profile[99]);
+        assertEquals(0, profile[100]);
+    }
+
+    @Test
+    public void testColormapAnalysisIsCached() {
+        Colormap cm = new Colormap();
+        cm.addPoint(new ColorPoint(0, new int[]{0, 0, 0}));
+        cm.addPoint(new ColorPoint(1, new int[]{255, 255, 255}));
+        LUTAnalysis a = cm.getAnalysis();
+        assertSame(a, cm.getAnalysis());
+        cm.getPoints().get(1).setRgb(new int[]{0, 0, 0});
+        assertNotSame(a, cm.getAnalysis());
+        assertEquals(0, cm.getAnalysis().getDirection());
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.rocsg.fijilutmaker.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedLUTTest {
+
+    @Test
+    public void testPackedMatchesRGBArray() {
+        Colormap cm = new Colormap();
+        cm.addPoint(new ColorPoint(0.0, new int[]{10, 20, 30}));
+        cm.addPoint(new ColorPoint(0.5, new int[]{200, 0, 90}));
+        cm.addPoint(new ColorPoint(1.0, new int[]{255, 250, 240}));
+        cm.setInterpolationMode(Colormap.InterpolationMode.SPLINE_LAB);
+
+        PackedLUT packed = cm.generatePackedLUT();
+        int[][] lut = cm.generateLUT();
+        assertEquals(256, packed.size());
+        for (int i = 0; i < lut.length; i++) {
+            assertArrayEquals(lut[i], packed.getRgb(i), "entry " + i);
+            assertEquals(lut[i][0], packed.red(i));
+            assertEquals(lut[i][1], packed.green(i));
+            assertEquals(lut[i][2], packed.blue(i));
+        }
+    }
+
+    @Test
+    public void testBytePlanesRoundtrip() {
+        int[] values = new int[256];
+        for (int i = 0; i < 256; i++) values[i] = PackedLUT.pack(i, 255 - i, (i * 7) & 0xFF);
+        PackedLUT lut = new PackedLUT(values);
+        byte[][] planes = lut.toBytePlanes();
+        PackedLUT back = PackedLUT.fromBytePlanes(planes[0], planes[1], planes[2]);
+        assertArrayEquals(values, back.toPackedArray());
+        assertEquals(200, lut.toImageJLUT().getRed(200));
+    }
+
+    @Test
+    public void testResample() {
+        PackedLUT lut = new PackedLUT(new int[]{0x000000, 0x808080, 0xFFFFFF});
+        PackedLUT big = lut.resample(5);
+        assertArrayEquals(new int[]{0x000000, 0x808080, 0x808080, 0xFFFFFF, 0xFFFFFF}, big.toPackedArray());
+        assertSame(lut, lut.resample(3));
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.rocsg.fijilutmaker.render;
+
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntensityMappingTest {
+
+    private static PackedLUT ramp(int n) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) values[i] = i; // entry i has "color" i
+        return new PackedLUT(values);
+    }
+
+    @Test
+    public void testSixteenBitDirectIndexing() {
+        IntensityMapping m = IntensityMapping.forBitDepth(ramp(65536), 16);
+        int[] table = m.integerTable(65536);
+        for (int v = 0; v < 65536; v += 97) assertEquals(v, table[v]);
+        assertEquals(65535, table[65535]);
+    }
+
+    @Test
+    public void testTwelveBitWindow() {
+        IntensityMapping m = IntensityMapping.forBitDepth(ramp(4096), 12);
+        int[] table = m.integerTable(65536);
+        assertEquals(1234, table[1234]);
+        assertEquals(4095, table[4095]);
+        assertEquals(4095, table[50000]); // above the window
+    }
+
+    @Test
+    public void testEightBitMatchesLegacySampling() {
+        PackedLUT lut = ramp(1000);
+        int[] table = IntensityMapping.forBitDepth(lut, 8).integerTable(256);
+        for (int v = 0; v < 256; v++) assertEquals((int) Math.round(v * 999 / 255.0), table[v]);
+    }
+
+    @Test
+    public void testFloatWindowAndGamma() {
+        float[] src = {-1f, 0f, 0.25f, 0.5f, 1f, 2f, Float.NaN};
+        int[] out = new int[src.length];
+        new IntensityMapping(ramp(101), 0, 1, 1).map(src, 0, out, 0, src.length);
+        assertArrayEquals(new int[]{0, 0, 25, 50, 100, 100, 0}, out);
+
+        IntensityMapping g = new IntensityMapping(ramp(101), 0, 1, 2);
+        g.map(src, 0, out, 0, src.length);
+        assertEquals(6, out[2]);   // 0.25^2 * 100 = 6.25
+        assertEquals(25, out[3]);
+        for (int i = 0; i < src.length; i++) assertEquals(g.map(src[i]), out[i], "sample " + i);
+    }
+}
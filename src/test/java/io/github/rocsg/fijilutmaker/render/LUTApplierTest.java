@@ -0,0 +1,107 @@
+package io.github.rocsg.fijilutmaker.render;
+
+import io.github.rocsg.fijilutmaker.color.ColorBlindSimulator;
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LUTApplierTest {
+
+    private static PackedLUT sampleLut() {
+        Colormap cm = new Colormap();
+        cm.addPoint(new ColorPoint(0.0, new int[]{0, 0, 80}));
+        cm.addPoint(new ColorPoint(0.5, new int[]{200, 30, 30}));
+        cm.addPoint(new ColorPoint(1.0, new int[]{255, 255, 0}));
+        return cm.generatePackedLUT();
+    }
+
+    private static BufferedImage grayImage(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < h; y++)
+            for (int x = 0; x < w; x++)
+                img.getRaster().setSample(x, y, 0, (x * 7 + y * 13) & 0xFF);
+        return img;
+    }
+
+    private static void assertMapped(BufferedImage src, BufferedImage[] out, PackedLUT lut) {
+        for (int y = 0; y < src.getHeight(); y++) {
+            for (int x = 0; x < src.getWidth(); x++) {
+                int rgb = lut.get(src.getRaster().getSample(x, y, 0));
+                assertEquals(rgb, out[LUTApplier.NORMAL].getRGB(x, y) & 0xFFFFFF);
+                assertEquals(ColorBlindSimulator.DEUTERANOPIA.simulate(rgb), out[LUTApplier.DEUTERANOPE].getRGB(x, y) & 0xFFFFFF);
+                assertEquals(ColorBlindSimulator.TRITANOPIA.simulate(rgb), out[LUTApplier.TRITANOPE].getRGB(x, y) & 0xFFFFFF);
+            }
+        }
+    }
+
+    @Test
+    public void testSmallAndParallelImages() {
+        PackedLUT lut = sampleLut();
+        LUTApplier applier = new LUTApplier(lut);
+        BufferedImage small = grayImage(256, 100);
+        assertMapped(small, applier.apply(small), lut);
+        BufferedImage large = grayImage(700, 600); // above the parallel threshold
+        assertMapped(large, applier.apply(large), lut);
+    }
+
+    @Test
+    public void testSubimageAndReuse() {
+        PackedLUT lut = sampleLut();
+        BufferedImage sub = grayImage(300, 200).getSubimage(17, 23, 120, 90);
+        BufferedImage[] out = new BufferedImage[LUTApplier.VIEWS];
+        new LUTApplier(null).apply(sub, out);
+        BufferedImage first = out[0];
+        new LUTApplier(lut).apply(sub, out);
+        assertSame(first, out[0]);
+        assertMapped(sub, out, lut);
+    }
+
+    @Test
+    public void testIncrementalUpdateMatchesFullApply() {
+        BufferedImage src = grayImage(320, 240);
+        LUTApplier.PixelIndex index = new LUTApplier.PixelIndex(src);
+        BufferedImage[] out = new BufferedImage[LUTApplier.VIEWS];
+        LUTApplier before = new LUTApplier(null);
+        before.apply(src, out);
+
+        int[] values = new int[256];
+        for (int v = 0; v < 256; v++) values[v] = PackedLUT.pack(v, v, v);
+        for (int v = 100; v < 120; v++) values[v] = PackedLUT.pack(255, 0, v);
+        PackedLUT lut = new PackedLUT(values);
+        assertTrue(new LUTApplier(lut).update(src, index, before.getTable(LUTApplier.NORMAL), out, () -> false));
+        assertMapped(src, out, lut);
+    }
+
+    @Test
+    public void testSixteenBitImage() {
+        int[] values = new int[65536];
+        for (int v = 0; v < values.length; v++) values[v] = (int) (v * 2654435761L) & 0xFFFFFF;
+        PackedLUT lut = new PackedLUT(values);
+        BufferedImage src = new BufferedImage(300, 200, BufferedImage.TYPE_USHORT_GRAY);
+        for (int y = 0; y < 200; y++)
+            for (int x = 0; x < 300; x++)
+                src.getRaster().setSample(x, y, 0, (x * 211 + y * 4099) & 0xFFFF);
+        LUTApplier applier = LUTApplier.forImage(lut, src);
+        assertEquals(65536, applier.getLevels());
+        BufferedImage[] out = applier.apply(src);
+        for (int y = 0; y < 200; y++)
+            for (int x = 0; x < 300; x++)
+                assertEquals(lut.get(src.getRaster().getSample(x, y, 0)), out[LUTApplier.NORMAL].getRGB(x, y) & 0xFFFFFF);
+
+        // incremental update on the 16-bit pixel index
+        LUTApplier.PixelIndex index = new LUTApplier.PixelIndex(src);
+        assertEquals(65536, index.levels());
+        int[] edited = lut.toPackedArray();
+        for (int v = 5000; v < 5100; v++) edited[v] = 0x00FF00;
+        PackedLUT lut2 = new PackedLUT(edited);
+        assertTrue(LUTApplier.forImage(lut2, src).update(src, index, applier.getTable(LUTApplier.NORMAL), out, () -> false));
+        for (int y = 0; y < 200; y++)
+            for (int x = 0; x < 300; x++)
+                assertEquals(lut2.get(src.getRaster().getSample(x, y, 0)), out[LUTApplier.NORMAL].getRGB(x, y) & 0xFFFFFF);
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.rocsg.fijilutmaker.render;
+
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import ij.process.ShortProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StackLUTRendererTest {
+
+    private static PackedLUT sampleLut() {
+        Colormap cm = new Colormap();
+        cm.addPoint(new ColorPoint(0.0, new int[]{0, 0, 80}));
+        cm.addPoint(new ColorPoint(0.5, new int[]{200, 30, 30}));
+        cm.addPoint(new ColorPoint(1.0, new int[]{255, 255, 0}));
+        return cm.generatePackedLUT();
+    }
+
+    private static ImagePlus byteStack(int w, int h, int n) {
+        ImageStack stack = new ImageStack(w, h);
+        for (int s = 0; s < n; s++) {
+            ByteProcessor bp = new ByteProcessor(w, h);
+            for (int i = 0; i < w * h; i++) bp.set(i, (i * 7 + s * 31) & 0xFF);
+            stack.addSlice("s" + s, bp);
+        }
+        return new ImagePlus("stack", stack);
+    }
+
+    @Test
+    public void testRenderByteStack() {
+        PackedLUT lut = sampleLut();
+        ImagePlus imp = byteStack(40, 30, 9);
+        AtomicInteger reported = new AtomicInteger();
+        ImagePlus rgb = new StackLUTRenderer(lut, 2).renderToRGB(imp, (done, total) -> {
+            assertEquals(9, total);
+            reported.incrementAndGet();
+        }, () -> false);
+        assertNotNull(rgb);
+        assertEquals(9, reported.get());
+        assertEquals(9, rgb.getStackSize());
+        for (int s = 1; s <= 9; s++) {
+            byte[] in = (byte[]) imp.getStack().getPixels(s);
+            int[] out = (int[]) rgb.getStack().getPixels(s);
+            for (int i = 0; i < in.length; i++) assertEquals(lut.get(in[i] & 0xFF), out[i] & 0xFFFFFF);
+            assertEquals("s" + (s - 1), rgb.getStack().getSliceLabel(s));
+        }
+    }
+
+    @Test
+    public void testShortStackUsesDisplayRange() {
+        PackedLUT lut = sampleLut();
+        ShortProcessor sp = new ShortProcessor(4, 1);
+        sp.set(0, 1000); sp.set(1, 1500); sp.set(2, 2000); sp.set(3, 60000);
+        ImagePlus imp = new ImagePlus("short", sp);
+        imp.setDisplayRange(1000, 2000);
+        int[] out = (int[]) new StackLUTRenderer(lut).renderToRGB(imp, null, () -> false).getProcessor().getPixels();
+        assertEquals(lut.get(0), out[0] & 0xFFFFFF);
+        assertEquals(lut.get(255), out[2] & 0xFFFFFF);
+        assertEquals(lut.get(255), out[3] & 0xFFFFFF);
+    }
+
+    @Test
+    public void testCancelledRenderReturnsNull() {
+        assertNull(new StackLUTRenderer(sampleLut()).renderToRGB(byteStack(8, 8, 5), null, () -> true));
+    }
+
+    @Test
+    public void testAttachResamplesLut() {
+        ImagePlus imp = byteStack(8, 8, 2);
+        PackedLUT lut = PackedLUT.fromRGBArray(new int[][]{{0, 0, 0}, {255, 0, 0}});
+        StackLUTRenderer.attach(imp, lut);
+        assertEquals(0, imp.getProcessor().getLut().getRGB(0) & 0xFFFFFF);
+        assertEquals(0xFF0000, imp.getProcessor().getLut().getRGB(255) & 0xFFFFFF);
+    }
+
+    @Test
+    public void testShortStackDirectWithWideLut() {
+        int[] values = new int[65536];
+        for (int i = 0; i < values.length; i++) values[i] = i * 31;
+        PackedLUT lut = new PackedLUT(values);
+        ShortProcessor sp = new ShortProcessor(3, 1);
+        sp.set(0, 1); sp.set(1, 1000); sp.set(2, 65535);
+        ImagePlus imp = new ImagePlus("short", sp);
+        int[] out = (int[]) new StackLUTRenderer(lut)
+                .renderToRGB(imp, IntensityMapping.forBitDepth(lut, 16), null, () -> false).getProcessor().getPixels();
+        for (int i = 0; i < 3; i++) assertEquals(lut.get(sp.get(i)), out[i] & 0xFFFFFF); // no 8-bit rounding
+    }
+
+    @Test
+    public void testFloatStack() {
+        PackedLUT lut = sampleLut();
+        FloatProcessor fp = new FloatProcessor(3, 1, new float[]{-5f, 0.5f, 10f});
+        ImagePlus imp = new ImagePlus("float", fp);
+        int[] out = (int[]) new StackLUTRenderer(lut)
+                .renderToRGB(imp, new IntensityMapping(lut, 0, 1, 1), null, () -> false).getProcessor().getPixels();
+        assertEquals(lut.get(0), out[0] & 0xFFFFFF);
+        assertEquals(lut.get(128), out[1] & 0xFFFFFF);
+        assertEquals(lut.get(255), out[2] & 0xFFFFFF);
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.rocsg.fijilutmaker.render;
+
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.Colormap;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import ij.IJ;
+import ij.ImagePlus;
+import ij.io.FileSaver;
+import ij.process.ByteProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TiledLUTRendererTest {
+
+    @TempDir
+    Path dir;
+
+    private static PackedLUT sampleLut(int size) {
+        Colormap cm = new Colormap();
+        cm.addPoint(new ColorPoint(0.0, new int[]{0, 0, 80}));
+        cm.addPoint(new ColorPoint(0.5, new int[]{200, 30, 30}));
+        cm.addPoint(new ColorPoint(1.0, new int[]{255, 255, 0}));
+        cm.setLutSize(size);
+        return cm.generatePackedLUT();
+    }
+
+    private static void assertRgbBytes(byte[] rgb, long offset, int[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            int o = (int) offset + 3 * i;
+            int v = ((rgb[o] & 0xFF) << 16) | ((rgb[o + 1] & 0xFF) << 8) | (rgb[o + 2] & 0xFF);
+            assertEquals(expected[i], v, "pixel " + i);
+        }
+    }
+
+    @Test
+    public void testRaw16BitToRaw() throws Exception {
+        int w = 257, h = 131, header = 100;
+        ByteBuffer buf = ByteBuffer.allocate(header + w * h * 2).order(ByteOrder.LITTLE_ENDIAN);
+        int[] values = new int[w * h];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i * 7919) & 0xFFFF;
+            buf.putShort(header + 2 * i, (short) values[i]);
+        }
+        Path in = dir.resolve("in.raw"), out = dir.resolve("out.rgb");
+        Files.write(in, buf.array());
+
+        IntensityMapping mapping = IntensityMapping.forBitDepth(sampleLut(4096), 16);
+        try (RasterSource src = RasterSource.raw(in, w, h, RasterSource.SampleType.UINT16, ByteOrder.LITTLE_ENDIAN, header)) {
+            assertTrue(new TiledLUTRenderer(mapping, 16, 3).render(src, out, TiledLUTRenderer.OutputFormat.RAW_RGB, null, () -> false));
+        }
+        int[] expected = new int[values.length];
+        for (int i = 0; i < values.length; i++) expected[i] = mapping.map(values[i]);
+        byte[] rgb = Files.readAllBytes(out);
+        assertEquals(w * h * 3, rgb.length);
+        assertRgbBytes(rgb, 0, expected);
+    }
+
+    @Test
+    public void testImageJTiffToTiff() throws Exception {
+        int w = 90, h = 70;
+        ByteProcessor bp = new ByteProcessor(w, h);
+        for (int i = 0; i < w * h; i++) bp.set(i, (i * 13) & 0xFF);
+        Path in = dir.resolve("in.tif"), out = dir.resolve("out.tif");
+        assertTrue(new FileSaver(new ImagePlus("in", bp)).saveAsTiff(in.toString()));
+
+        PackedLUT lut = sampleLut(256);
+        try (RasterSource src = RasterSource.tiff(in)) {
+            assertEquals(RasterSource.SampleType.UINT8, src.getSampleType());
+            int[] rowsDone = new int[1];
+            assertTrue(new TiledLUTRenderer(IntensityMapping.forBitDepth(lut, 8), 16, 2)
+                    .render(src, out, TiledLUTRenderer.OutputFormat.TIFF, (d, t) -> { synchronized (rowsDone) { rowsDone[0] = Math.max(rowsDone[0], d); } }, () -> false));
+            assertEquals(h, rowsDone[0]);
+        }
+        ImagePlus back = IJ.openImage(out.toString());
+        assertEquals(ImagePlus.COLOR_RGB, back.getType());
+        int[] px = (int[]) back.getProcessor().getPixels();
+        for (int i = 0; i < w * h; i++) assertEquals(lut.get(bp.get(i)), px[i] & 0xFFFFFF, "pixel " + i);
+    }
+
+    @Test
+    public void testTiledFloatTiff() throws Exception {
+        // big-endian tiled TIFF: 40x30 float image in 16x16 tiles (3x2 tiles, edges padded)
+        int w = 40, h = 30, tw = 16, th = 16, across = 3, down = 2, tileBytes = tw * th * 4;
+        int entries = 9, ifd = 8, offsetsAt = ifd + 2 + entries * 12 + 4, data = offsetsAt + 4 * across * down;
+        ByteBuffer b = ByteBuffer.allocate(data + across * down * tileBytes).order(ByteOrder.BIG_ENDIAN);
+        b.put((byte) 'M').put((byte) 'M').putShort((short) 42).putInt(ifd);
+        b.putShort((short) entries);
+        int[][] tags = {{256, 4, 1, w}, {257, 4, 1, h}, {258, 3, 1, 32}, {259, 3, 1, 1}, {277, 3, 1, 1},
+                        {322, 3, 1, tw}, {323, 3, 1, th}, {324, 4, across * down, offsetsAt}, {339, 3, 1, 3}};
+        for (int[] t : tags) {
+            b.putShort((short) t[0]).putShort((short) t[1]).putInt(t[2]);
+            if (t[1] == 3) b.putShort((short) t[3]).putShort((short) 0); else b.putInt(t[3]);
+        }
+        b.putInt(0);
+        float[] values = new float[w * h];
+        for (int k = 0; k < across * down; k++) b.putInt(offsetsAt + 4 * k, data + k * tileBytes);
+        for (int y = 0; y < h; y++)
+            for (int x = 0; x < w; x++) {
+                values[y * w + x] = (x + y * w) / (float) (w * h);
+                int tile = (y / th) * across + x / tw;
+                b.putFloat(data + tile * tileBytes + ((y % th) * tw + x % tw) * 4, values[y * w + x]);
+            }
+        Path in = dir.resolve("tiled.tif"), out = dir.resolve("tiled.rgb");
+        Files.write(in, b.array());
+
+        IntensityMapping mapping = new IntensityMapping(sampleLut(1024), 0, 1, 0.5);
+        try (RasterSource src = RasterSource.tiff(in)) {
+            assertEquals(RasterSource.SampleType.FLOAT32, src.getSampleType());
+            assertTrue(new TiledLUTRenderer(mapping, 7, 2).render(src, out, TiledLUTRenderer.OutputFormat.RAW_RGB, null, () -> false));
+        }
+        int[] expected = new int[w * h];
+        mapping.map(values, 0, expected, 0, expected.length);
+        assertRgbBytes(Files.readAllBytes(out), 0, expected);
+    }
+
+    @Test
+    public void testBandLargerThanReadBuffer() throws Exception {
+        // 400 KB rows: a 7-row band is read a few rows at a time
+        int w = 400_000, h = 7;
+        byte[] data = new byte[w * h];
+        for (int i = 0; i < data.length; i++) data[i] = (byte) (i * 31 + i / w);
+        Path in = dir.resolve("wide.raw"), out = dir.resolve("wide.rgb");
+        Files.write(in, data);
+        IntensityMapping mapping = IntensityMapping.forBitDepth(sampleLut(256), 8);
+        try (RasterSource src = RasterSource.raw(in, w, h, RasterSource.SampleType.UINT8, ByteOrder.BIG_ENDIAN, 0)) {
+            assertTrue(new TiledLUTRenderer(mapping, h, 1).render(src, out, TiledLUTRenderer.OutputFormat.RAW_RGB, null, () -> false));
+        }
+        int[] expected = new int[data.length];
+        for (int i = 0; i < data.length; i++) expected[i] = mapping.map(data[i] & 0xFF);
+        assertRgbBytes(Files.readAllBytes(out), 0, expected);
+    }
+
+    @Test
+    public void testCancelled() throws Exception {
+        Path in = dir.resolve("in.raw");
+        Files.write(in, new byte[64 * 64]);
+        try (RasterSource src = RasterSource.raw(in, 64, 64, RasterSource.SampleType.UINT8, ByteOrder.BIG_ENDIAN, 0)) {
+            assertFalse(new TiledLUTRenderer(IntensityMapping.forBitDepth(sampleLut(256), 8))
+                    .render(src, dir.resolve("out.rgb"), TiledLUTRenderer.OutputFormat.RAW_RGB, null, () -> true));
+        }
+    }
+
+    @Test
+    public void testRawTooShortIsRejected() throws Exception {
+        Path in = dir.resolve("short.raw");
+        Files.write(in, new byte[100]);
+        assertThrows(java.io.IOException.class,
+                () -> RasterSource.raw(in, 64, 64, RasterSource.SampleType.UINT8, ByteOrder.BIG_ENDIAN, 0));
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.rocsg.fijilutmaker.ui;
+
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColormapCurvePanelTest {
+
+    @Test
+    public void testNarrowPeakIsDrawn() {
+        // One white entry in a black 65536-entry LUT: 128 entries per column at w = 512
+        int[] packed = new int[65536];
+        packed[30001] = 0xFFFFFF;
+        packed[1000] = 0x808080;
+        ColormapCurvePanel panel = new ColormapCurvePanel(new PackedLUT(packed));
+        int w = 512, h = 80;
+        Path2D[] curves = panel.curves(w, h);
+        Rectangle2D bounds = curves[0].getBounds2D();
+        assertEquals(5, bounds.getMinY(), 0.5);      // L = 100 is the top of the range
+        assertEquals(w, bounds.getMaxX(), 2.0);      // the curve spans the panel
+
+        // Small LUTs keep every entry
+        int[] small = new int[100];
+        small[37] = 0xFFFFFF;
+        Rectangle2D b = new ColormapCurvePanel(new PackedLUT(small)).curves(w, h)[0].getBounds2D();
+        assertEquals(5, b.getMinY(), 0.5);
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.rocsg.fijilutmaker.ui;
+
+import io.github.rocsg.fijilutmaker.color.ColorBlindSimulator;
+import io.github.rocsg.fijilutmaker.model.PackedLUT;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LUTPreviewPanelTest {
+
+    private static BufferedImage paint(LUTPreviewPanel panel, int w) {
+        panel.setSize(w, 80);
+        BufferedImage img = new BufferedImage(w, 80, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        panel.paint(g);
+        g.dispose();
+        return img;
+    }
+
+    @Test
+    public void testBandsShowLutAndSimulations() {
+        int[] packed = new int[256];
+        for (int i = 0; i < 256; i++) packed[i] = PackedLUT.pack(i, 255 - i, 64);
+        PackedLUT lut = new PackedLUT(packed);
+        LUTPreviewPanel panel = new LUTPreviewPanel(lut);
+        BufferedImage img = paint(panel, 512);
+        // x = 2i shows entry i; rows right of the labels
+        for (int i = 100; i < 256; i += 31) {
+            assertEquals(lut.get(i), img.getRGB(2 * i, 9) & 0xFFFFFF);
+            assertEquals(ColorBlindSimulator.DEUTERANOPIA.simulate(lut.get(i)), img.getRGB(2 * i, 18 + 7 + 9) & 0xFFFFFF);
+            assertEquals(ColorBlindSimulator.TRITANOPIA.simulate(lut.get(i)), img.getRGB(2 * i, 2 * (18 + 7) + 9) & 0xFFFFFF);
+        }
+
+        // Replacing the LUT invalidates the cached bands
+        int[] red = new int[65536];
+        java.util.Arrays.fill(red, 0xFF0000);
+        panel.setLut(new PackedLUT(red));
+        img = paint(panel, 300);
+        assertEquals(0xFF0000, img.getRGB(250, 9) & 0xFFFFFF);
+    }
+}
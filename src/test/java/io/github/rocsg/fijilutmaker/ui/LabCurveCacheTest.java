@@ -0,0 +1,92 @@
+package io.github.rocsg.fijilutmaker.ui;
+
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+import io.github.rocsg.fijilutmaker.utils.InterpolationPlan;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LabCurveCacheTest {
+
+    private static List<ColorPoint> randomPoints(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<ColorPoint> pts = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            pts.add(new ColorPoint(i / (n - 1.0), new int[]{rnd.nextInt(256), rnd.nextInt(256), rnd.nextInt(256)}));
+        return pts;
+    }
+
+    @Test
+    public void testSamplesFollowTheInterpolatedCurve() {
+        InterpolationPlan plan = new InterpolationPlan(randomPoints(6, 1), InterpolationMode.SPLINE_LCH);
+        LabCurveCache cache = new LabCurveCache();
+        cache.update(plan, 0, 1);
+        assertEquals(5, cache.getSegments().size());
+
+        // Dense reference, compared with the polyline through the samples
+        int dense = 4001;
+        double[] ts = new double[dense];
+        for (int i = 0; i < dense; i++) ts[i] = i / (dense - 1.0);
+        float[] ref = new float[3 * dense];
+        plan.evaluateLab(ts, ref, dense);
+        double[] range = {100, 256, 256};
+        int outliers = 0;
+        for (int i = 0; i < dense; i++) {
+            for (LabCurveCache.Segment seg : cache.getSegments()) {
+                if (ts[i] < seg.t0 || ts[i] > seg.t1) continue;
+                int k = 1;
+                while (k < seg.t.length - 1 && seg.t[k] < ts[i]) k++;
+                double a = (ts[i] - seg.t[k - 1]) / (seg.t[k] - seg.t[k - 1]);
+                for (int c = 0; c < 3; c++) {
+                    double v = seg.lab[3 * (k - 1) + c] * (1 - a) + seg.lab[3 * k + c] * a;
+                    if (Math.abs(v - ref[3 * i + c]) / range[c] > 4 * LabCurveCache.TOLERANCE) outliers++;
+                }
+                break;
+            }
+        }
+        assertTrue(outliers < dense / 100, "outliers: " + outliers);
+    }
+
+    @Test
+    public void testDenserWhereCurvesBend() {
+        List<ColorPoint> gray = new ArrayList<>();
+        gray.add(new ColorPoint(0, new int[]{0, 0, 0}));
+        gray.add(new ColorPoint(1, new int[]{255, 255, 255}));
+        LabCurveCache straight = new LabCurveCache();
+        straight.update(new InterpolationPlan(gray, InterpolationMode.LINEAR_LAB), 0, 1);
+        LabCurveCache bent = new LabCurveCache();
+        bent.update(new InterpolationPlan(randomPoints(2, 4), InterpolationMode.LINEAR_LCH), 0, 1);
+        assertTrue(straight.sampleCount() <= 2 * LabCurveCache.INITIAL_INTERVALS + 1);
+        assertTrue(bent.sampleCount() > straight.sampleCount());
+    }
+
+    @Test
+    public void testIncrementalUpdate() {
+        List<ColorPoint> pts = randomPoints(11, 2);
+        InterpolationPlan before = new InterpolationPlan(pts, InterpolationMode.LINEAR_LAB);
+        LabCurveCache cache = new LabCurveCache();
+        cache.update(before, 0, 1);
+        assertEquals(10, cache.getResampledCount());
+        List<LabCurveCache.Segment> old = new ArrayList<>(cache.getSegments());
+
+        // Recolor point 5: only the two segments around it
+        pts.get(5).setRgb(new int[]{10, 200, 30});
+        InterpolationPlan after = new InterpolationPlan(pts, InterpolationMode.LINEAR_LAB);
+        int[] r = after.changedRange(before, 1 << 16);
+        cache.update(after, r[0] / 65535.0, (r[1] - 1) / 65535.0);
+        assertTrue(cache.getResampledCount() <= 4, "resampled " + cache.getResampledCount());
+        assertSame(old.get(0), cache.getSegments().get(0));
+        assertSame(old.get(9), cache.getSegments().get(9));
+
+        // Move point 3: its two segments change bounds and are resampled, the others are reused
+        pts.get(3).setPosition(0.33);
+        cache.update(new InterpolationPlan(pts, InterpolationMode.SPLINE_LAB), 0.2, 0.4);
+        assertEquals(2, cache.getResampledCount());
+        assertEquals(0.33, cache.getSegments().get(3).t0);
+    }
+}
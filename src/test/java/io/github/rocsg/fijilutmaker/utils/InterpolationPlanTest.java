@@ -0,0 +1,117 @@
+package io.github.rocsg.fijilutmaker.utils;
+
+import io.github.rocsg.fijilutmaker.color.ColorUtils;
+import io.github.rocsg.fijilutmaker.model.ColorPoint;
+import io.github.rocsg.fijilutmaker.model.Colormap.InterpolationMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InterpolationPlanTest {
+
+    private static List<ColorPoint> samplePoints() {
+        return Arrays.asList(
+            new ColorPoint(0.0, new int[]{20,0,40}),
+            new ColorPoint(0.2, new int[]{255,0,0}),
+            new ColorPoint(0.45, new int[]{255,0,255}),
+            new ColorPoint(0.7, new int[]{0,200,80}),
+            new ColorPoint(1.0, new int[]{255,255,200})
+        );
+    }
+
+    private static int[] perSample(List<ColorPoint> pts, InterpolationMode mode, double t) {
+        switch (mode) {
+            case LINEAR_RGB: return Interpolator.linearRGB(pts, t);
+            case SPLINE_RGB: return Interpolator.splineRGB(pts, t);
+            case LINEAR_LAB: return Interpolator.linearLab(pts, t);
+            case SPLINE_LAB: return Interpolator.splineLab(pts, t);
+            case LINEAR_LCH: return Interpolator.linearLch(pts, t);
+            default:         return Interpolator.splineLch(pts, t);
+        }
+    }
+
+    @Test
+    public void testFillMatchesPerSampleInterpolation() {
+        List<ColorPoint> pts = samplePoints();
+        for (InterpolationMode mode : InterpolationMode.values()) {
+            InterpolationPlan plan = new InterpolationPlan(pts, mode);
+            int[][] lut = new int[300][];
+            plan.fill(lut);
+            for (int i = 0; i < lut.length; i++) {
+                double t = (double) i / (lut.length - 1);
+                assertArrayEquals(perSample(pts, mode, t), lut[i], mode + " entry " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluateMatchesPerSampleInterpolation() {
+        List<ColorPoint> pts = samplePoints();
+        for (InterpolationMode mode : InterpolationMode.values()) {
+            InterpolationPlan plan = new InterpolationPlan(pts, mode);
+            for (double t : new double[]{0.0, 0.2, 0.33, 0.45, 0.9999, 1.0}) {
+                assertArrayEquals(perSample(pts, mode, t), plan.evaluate(t), mode + " at " + t);
+            }
+        }
+    }
+
+    @Test
+    public void testTwoPointsSplineFallsBackToLinear() {
+        List<ColorPoint> pts = Arrays.asList(
+            new ColorPoint(0.0, new int[]{0,0,0}),
+            new ColorPoint(1.0, new int[]{255,255,255})
+        );
+        InterpolationPlan spline = new InterpolationPlan(pts, InterpolationMode.SPLINE_RGB);
+        InterpolationPlan linear = new InterpolationPlan(pts, InterpolationMode.LINEAR_RGB);
+        assertArrayEquals(linear.evaluate(0.37), spline.evaluate(0.37));
+    }
+
+    @Test
+    public void testBatchEvaluateInAnyOrder() {
+        List<ColorPoint> pts = samplePoints();
+        double[] ts = {0.9, 0.1, 0.45, 0.0, 1.0, 0.2, 0.7001, 0.33};
+        for (InterpolationMode mode : InterpolationMode.values()) {
+            InterpolationPlan plan = new InterpolationPlan(pts, mode);
+            int[] out = new int[ts.length];
+            plan.evaluate(ts, out, ts.length);
+            for (int i = 0; i < ts.length; i++) {
+                int[] rgb = perSample(pts, mode, ts[i]);
+                assertEquals((rgb[0] << 16) | (rgb[1] << 8) | rgb[2], out[i], mode + " at " + ts[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluateLabIsLabOfOutputColor() {
+        InterpolationPlan plan = new InterpolationPlan(samplePoints(), InterpolationMode.SPLINE_LCH);
+        double[] ts = {0.0, 0.31, 0.77, 1.0};
+        float[] lab = new float[3 * ts.length];
+        plan.evaluateLab(ts, lab, ts.length);
+        for (int i = 0; i < ts.length; i++) {
+            int[] rgb = plan.evaluate(ts[i]);
+            double[] expected = ColorUtils.rgbToLab(rgb[0], rgb[1], rgb[2]);
+            for (int c = 0; c < 3; c++) assertEquals(expected[c], lab[3 * i + c], 1e-3);
+        }
+        assertArrayEquals(new double[]{0.0, 0.2, 0.45, 0.7, 1.0}, plan.getKnots());
+        assertTrue(plan.hasGlobalSupport());
+    }
+
+    @Test
+    public void testDenseControlPoints() {
+        List<ColorPoint> pts = new ArrayList<>();
+        Random rnd = new Random(7);
+        for (int k = 0; k < 400; k++)
+            pts.add(new ColorPoint(k / 399.0, new int[]{rnd.nextInt(256), rnd.nextInt(256), rnd.nextInt(256)}));
+        for (InterpolationMode mode : new InterpolationMode[]{InterpolationMode.LINEAR_RGB, InterpolationMode.LINEAR_LCH}) {
+            InterpolationPlan plan = new InterpolationPlan(pts, mode);
+            int[][] lut = new int[1024][];
+            plan.fill(lut);
+            for (int i = 0; i < lut.length; i++) {
+                double t = (double) i / (lut.length - 1);
+                assertArrayEquals(perSample(pts, mode, t), lut[i], mode + " entry " + i);
+            }
+        }
+    }
+}
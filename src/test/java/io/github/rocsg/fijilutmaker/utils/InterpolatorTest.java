@@ -101,4 +101,20 @@ public class InterpolatorTest {
         // Should be close to magenta (R and B both high, G low)
         assertTrue(mag[0] > 200 && mag[2] > 200 && mag[1] < 100, "splineLch mid should be magenta-ish");
     }
+
+    @Test
+    public void testFindSegmentAndCursor() {
+        double[] x = {0.0, 0.1, 0.1, 0.4, 0.75, 1.0};
+        Interpolator.SegmentCursor cursor = new Interpolator.SegmentCursor(x);
+        for (int k = 0; k <= 1000; k++) {
+            double t = k / 1000.0;
+            int expected = 1;
+            while (expected < x.length - 1 && x[expected] < t) expected++; // ancien balayage linéaire
+            assertEquals(expected, Interpolator.findSegment(x, t), "t=" + t);
+            assertEquals(expected, cursor.next(t), "t=" + t);
+        }
+        // retour en arrière : le curseur repart d'une recherche binaire
+        assertEquals(1, cursor.next(0.05));
+        assertEquals(4, cursor.next(0.5));
+    }
 }